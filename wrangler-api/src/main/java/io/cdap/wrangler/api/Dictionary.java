@@ -0,0 +1,133 @@
+package io.cdap.wrangler.api;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps strings to compact int codes and back, so that repeated column names and
+ * values are stored once and can be compared by code.
+ * 
+ * Codes are assigned in order from 0 and never change. The dictionary holds at
+ * most {@link #getCapacity()} strings; once full, {@link #encode(String)} returns
+ * {@link #NONE} for new strings, so that high-cardinality data cannot grow it
+ * without bound. A dictionary is thread-safe and is meant to be shared by all
+ * readers and directives of a job.
+ */
+public final class Dictionary {
+    /**
+     * Code of strings that are not in the dictionary.
+     */
+    public static final int NONE = -1;
+    
+    /**
+     * Default number of strings a dictionary can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    
+    private final int capacity;
+    private final Map<String, Integer> codes;
+    private volatile String[] values;
+    private int size;
+    
+    /**
+     * Creates a dictionary with the default capacity.
+     */
+    public Dictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * Creates a dictionary.
+     * 
+     * @param capacity Maximum number of strings
+     */
+    public Dictionary(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Dictionary capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[Math.min(capacity, 256)];
+    }
+    
+    /**
+     * Gets the code of a string, adding it if it is new and the dictionary is not full.
+     * 
+     * @param value The string
+     * @return The code, or {@link #NONE} if the dictionary is full
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+    
+    /**
+     * Gets the code of a string without adding it.
+     * 
+     * @param value The string
+     * @return The code, or {@link #NONE} if the string is not in the dictionary
+     */
+    public int lookup(String value) {
+        Integer code = codes.get(value);
+        return code != null ? code : NONE;
+    }
+    
+    /**
+     * Gets the string of a code.
+     * 
+     * @param code A code returned by this dictionary
+     * @return The string
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+    
+    /**
+     * Gets the shared instance of a string, adding it if possible.
+     * 
+     * @param value The string
+     * @return The instance held by the dictionary, or the string itself if the dictionary is full
+     */
+    public String intern(String value) {
+        int code = encode(value);
+        return code == NONE ? value : values[code];
+    }
+    
+    /**
+     * Gets the number of strings in the dictionary.
+     * 
+     * @return The size
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    /**
+     * Gets the maximum number of strings in the dictionary.
+     * 
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private synchronized int add(String value) {
+        Integer existing = codes.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == capacity) {
+            return NONE;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, Math.min(capacity, size * 2));
+        }
+        // Store the string before publishing its code, so readers of the code always find it
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+}
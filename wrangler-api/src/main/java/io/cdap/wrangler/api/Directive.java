@@ -0,0 +1,18 @@
+package io.cdap.wrangler.api;
+
+import java.util.List;
+
+/**
+ * A step of a recipe that transforms a batch of rows.
+ */
+public interface Directive {
+    /**
+     * Executes the directive on the rows.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @return The processed rows
+     * @throws DirectiveExecutionException If an error occurs during execution
+     */
+    List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException;
+}
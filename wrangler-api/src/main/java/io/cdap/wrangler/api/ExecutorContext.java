@@ -19,4 +19,14 @@ public interface ExecutorContext {
      * @return The environment
      */
     Environment getEnvironment();
+    
+    /**
+     * Gets the memory budget of the recipe being executed. Directives reserve the
+     * estimated size of their batches and state from it.
+     * 
+     * @return The memory budget
+     */
+    default MemoryBudget getMemoryBudget() {
+        return MemoryBudget.UNLIMITED;
+    }
 }
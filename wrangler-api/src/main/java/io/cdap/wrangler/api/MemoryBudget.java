@@ -0,0 +1,257 @@
+package io.cdap.wrangler.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the estimated memory reserved by a recipe for its batches and
+ * aggregation state, against a fixed limit.
+ * 
+ * Directives {@link #reserve(long)} bytes before building large structures and
+ * {@link #release(long)} them when done. When a reservation does not fit, the
+ * budget either fails fast with a {@link DirectiveExecutionException}, or, if it
+ * is blocking, waits for other batches of the recipe to release memory, up to a
+ * timeout. Directives that can spill may use {@link #tryReserve(long)} instead.
+ * 
+ * A budget can have a parent, e.g. one budget per node shared by the budgets of
+ * all recipes running on it. Reservations then count against both. Budgets are
+ * thread-safe.
+ */
+public final class MemoryBudget {
+    /**
+     * A budget that never runs out, used by contexts that do not set one. It is
+     * shared by all such recipes, so it keeps no counters and takes no locks:
+     * reservations are no-ops and it always reports 0 bytes reserved.
+     */
+    public static final MemoryBudget UNLIMITED = new MemoryBudget("unlimited");
+    
+    private final String name;
+    private final long limit;
+    private final long timeoutNanos;
+    private final MemoryBudget parent;
+    private final boolean unlimited;
+    private long reserved;
+    private long peak;
+    
+    /**
+     * Builder for {@link MemoryBudget}.
+     */
+    public static final class Builder {
+        private final String name;
+        private final long limit;
+        private long timeoutNanos;
+        private MemoryBudget parent;
+        
+        private Builder(String name, long limit) {
+            this.name = name;
+            this.limit = limit;
+        }
+        
+        /**
+         * Makes reservations wait for memory to be released instead of failing immediately.
+         * 
+         * @param timeout The longest time to wait
+         * @param unit The unit of the timeout
+         * @return This builder
+         */
+        public Builder blocking(long timeout, TimeUnit unit) {
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+        
+        /**
+         * Makes reservations also count against a parent budget.
+         * 
+         * @param parent The parent budget
+         * @return This builder
+         */
+        public Builder parent(MemoryBudget parent) {
+            this.parent = parent;
+            return this;
+        }
+        
+        /**
+         * Creates the budget.
+         * 
+         * @return The budget
+         */
+        public MemoryBudget build() {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Memory limit must be positive: " + limit);
+            }
+            return new MemoryBudget(this);
+        }
+    }
+    
+    private MemoryBudget(Builder builder) {
+        this.name = builder.name;
+        this.limit = builder.limit;
+        this.timeoutNanos = builder.timeoutNanos;
+        this.parent = builder.parent;
+        this.unlimited = false;
+    }
+    
+    private MemoryBudget(String name) {
+        this.name = name;
+        this.limit = Long.MAX_VALUE;
+        this.timeoutNanos = 0;
+        this.parent = null;
+        this.unlimited = true;
+    }
+    
+    /**
+     * Creates a builder for a fail-fast budget.
+     * 
+     * @param name The name used in errors, usually the recipe name
+     * @param limit The limit in bytes
+     * @return The builder
+     */
+    public static Builder builder(String name, long limit) {
+        return new Builder(name, limit);
+    }
+    
+    /**
+     * Reserves memory, waiting for it if the budget is blocking.
+     * 
+     * @param bytes Estimated bytes
+     * @throws DirectiveExecutionException If the memory is not available
+     */
+    public void reserve(long bytes) throws DirectiveExecutionException {
+        if (bytes <= 0 || unlimited) {
+            return;
+        }
+        reserveLocal(bytes);
+        if (parent != null) {
+            try {
+                parent.reserve(bytes);
+            } catch (DirectiveExecutionException e) {
+                releaseLocal(bytes);
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Reserves memory if it is available right away.
+     * 
+     * @param bytes Estimated bytes
+     * @return Whether the memory was reserved
+     */
+    public boolean tryReserve(long bytes) {
+        if (bytes <= 0 || unlimited) {
+            return true;
+        }
+        synchronized (this) {
+            if (bytes > limit - reserved) {
+                return false;
+            }
+            add(bytes);
+        }
+        if (parent != null && !parent.tryReserve(bytes)) {
+            releaseLocal(bytes);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Releases memory reserved earlier.
+     * 
+     * @param bytes Bytes passed to a successful reservation
+     */
+    public void release(long bytes) {
+        if (bytes <= 0 || unlimited) {
+            return;
+        }
+        releaseLocal(bytes);
+        if (parent != null) {
+            parent.release(bytes);
+        }
+    }
+    
+    /**
+     * Gets the name of the budget.
+     * 
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets the limit of the budget.
+     * 
+     * @return The limit in bytes
+     */
+    public long getLimit() {
+        return limit;
+    }
+    
+    /**
+     * Tells whether this is the {@link #UNLIMITED} budget, for which callers can
+     * skip estimating sizes.
+     * 
+     * @return Whether reservations are no-ops
+     */
+    public boolean isUnlimited() {
+        return unlimited;
+    }
+    
+    /**
+     * Gets the memory currently reserved.
+     * 
+     * @return Reserved bytes
+     */
+    public synchronized long getReserved() {
+        return reserved;
+    }
+    
+    /**
+     * Gets the largest amount of memory reserved at any one time.
+     * 
+     * @return Peak reserved bytes
+     */
+    public synchronized long getPeak() {
+        return peak;
+    }
+    
+    private synchronized void reserveLocal(long bytes) throws DirectiveExecutionException {
+        if (bytes > limit) {
+            throw exhausted(bytes, "the request exceeds the limit");
+        }
+        if (bytes > limit - reserved && timeoutNanos > 0) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            long remaining = timeoutNanos;
+            try {
+                while (bytes > limit - reserved && remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw exhausted(bytes, "interrupted while waiting for memory");
+            }
+        }
+        if (bytes > limit - reserved) {
+            throw exhausted(bytes, timeoutNanos > 0
+                ? "no memory was released within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + "ms"
+                : "the budget is exhausted");
+        }
+        add(bytes);
+    }
+    
+    private synchronized void releaseLocal(long bytes) {
+        reserved = Math.max(0, reserved - bytes);
+        notifyAll();
+    }
+    
+    private void add(long bytes) {
+        reserved += bytes;
+        peak = Math.max(peak, reserved);
+    }
+    
+    private DirectiveExecutionException exhausted(long bytes, String reason) {
+        return new DirectiveExecutionException(String.format(
+            "Memory budget '%s' cannot reserve %d bytes (%d of %d bytes in use): %s",
+            name, bytes, reserved, limit, reason));
+    }
+}
@@ -1,23 +1,43 @@
 package io.cdap.wrangler.api;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Simple Row class for handling data records.
+ * 
+ * Columns are kept in insertion order in parallel arrays. A row can be
+ * {@link #reset()} and refilled, keeping its arrays, and numeric values can be
+ * stored unboxed with {@link #setDouble(String, double)}, so that rows reused
+ * from a {@link RowBatch} do not allocate in steady state. Only {@link #getDouble(int)}
+ * reads such values without allocating: {@link #getValue(int)} boxes them, so
+ * readers should check {@link #isDouble(int)} first. String values taken
+ * from a {@link Dictionary} carry their code, see {@link #getCode(int)}.
  */
 public class Row {
-    private final List<String> columns;
-    private final Map<String, Object> values;
+    private static final int DEFAULT_CAPACITY = 8;
+    
+    // Rough heap sizes for memory accounting, assuming compressed references
+    private static final long ROW_BYTES = 96;
+    private static final long SLOT_BYTES = 21;
+    private static final long STRING_BYTES = 40;
+    private static final long BOXED_BYTES = 24;
+    
+    private String[] columns;
+    private Object[] values;
+    private int[] codes;
+    private double[] doubles;
+    private boolean[] unboxed;
+    private int size;
     
     /**
      * Creates a new Row.
      */
     public Row() {
-        this.columns = new ArrayList<>();
-        this.values = new HashMap<>();
+        this.columns = new String[DEFAULT_CAPACITY];
+        this.values = new Object[DEFAULT_CAPACITY];
+        this.codes = new int[DEFAULT_CAPACITY];
+        this.doubles = new double[DEFAULT_CAPACITY];
+        this.unboxed = new boolean[DEFAULT_CAPACITY];
     }
     
     /**
@@ -27,10 +47,38 @@ public class Row {
      * @param value The value
      */
     public void add(String column, Object value) {
-        if (!columns.contains(column)) {
-            columns.add(column);
-        }
-        values.put(column, value);
+        int index = indexFor(column);
+        values[index] = value;
+        codes[index] = Dictionary.NONE;
+        unboxed[index] = false;
+    }
+    
+    /**
+     * Adds a dictionary-encoded value to the row.
+     * 
+     * @param column The column name
+     * @param value The value, as held by the dictionary
+     * @param code The dictionary code of the value
+     */
+    public void add(String column, String value, int code) {
+        int index = indexFor(column);
+        values[index] = value;
+        codes[index] = code;
+        unboxed[index] = false;
+    }
+    
+    /**
+     * Sets a numeric value without boxing it.
+     * 
+     * @param column The column name
+     * @param value The value
+     */
+    public void setDouble(String column, double value) {
+        int index = indexFor(column);
+        values[index] = null;
+        codes[index] = Dictionary.NONE;
+        doubles[index] = value;
+        unboxed[index] = true;
     }
     
     /**
@@ -40,7 +88,86 @@ public class Row {
      * @return The value
      */
     public Object getValue(String column) {
-        return values.get(column);
+        int index = find(column);
+        return index < 0 ? null : getValue(index);
+    }
+    
+    /**
+     * Gets the value at the given index. A value set with
+     * {@link #setDouble(String, double)} is boxed on every call.
+     * 
+     * @param index The column index
+     * @return The value
+     */
+    public Object getValue(int index) {
+        return unboxed[index] ? (Object) doubles[index] : values[index];
+    }
+    
+    /**
+     * Gets the dictionary code of the value at the given index. Values with the
+     * same code from the same dictionary are equal, so directives can compare or
+     * memoize by code instead of by string.
+     * 
+     * @param index The column index
+     * @return The code, or {@link Dictionary#NONE} if the value is not encoded
+     */
+    public int getCode(int index) {
+        return codes[index];
+    }
+    
+    /**
+     * Gets a numeric value without boxing it.
+     * 
+     * @param column The column name
+     * @return The value, or NaN if the column is absent or not numeric
+     */
+    public double getDouble(String column) {
+        int index = find(column);
+        return index < 0 ? Double.NaN : getDouble(index);
+    }
+    
+    /**
+     * Gets the numeric value at the given index without boxing it.
+     * 
+     * @param index The column index
+     * @return The value, or NaN if it is not numeric
+     */
+    public double getDouble(int index) {
+        if (unboxed[index]) {
+            return doubles[index];
+        }
+        Object value = values[index];
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+    
+    /**
+     * Tells whether the value at the given index was set with
+     * {@link #setDouble(String, double)} and is held unboxed.
+     * 
+     * @param index The column index
+     * @return true if {@link #getDouble(int)} reads the value as stored
+     */
+    public boolean isDouble(int index) {
+        return unboxed[index];
+    }
+    
+    /**
+     * Gets the name of the column at the given index.
+     * 
+     * @param index The column index
+     * @return The column name
+     */
+    public String getColumn(int index) {
+        return columns[index];
+    }
+    
+    /**
+     * Gets the number of columns.
+     * 
+     * @return The number of columns
+     */
+    public int width() {
+        return size;
     }
     
     /**
@@ -50,6 +177,61 @@ public class Row {
      * @return The index, or -1 if not found
      */
     public int find(String column) {
-        return columns.indexOf(column);
+        // Column names usually come from the same constants, so try identity first
+        for (int i = 0; i < size; i++) {
+            if (columns[i] == column) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (columns[i].equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Estimates the heap size of the row and its values. Column names and
+     * dictionary-encoded values are not counted, as they are shared between rows.
+     * 
+     * @return The estimated size in bytes
+     */
+    public long estimateBytes() {
+        long bytes = ROW_BYTES + columns.length * SLOT_BYTES;
+        for (int i = 0; i < size; i++) {
+            Object value = values[i];
+            if (value instanceof String && codes[i] == Dictionary.NONE) {
+                bytes += STRING_BYTES + ((String) value).length();
+            } else if (value != null) {
+                bytes += BOXED_BYTES;
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Removes all columns, keeping the allocated capacity for reuse.
+     */
+    public void reset() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+    
+    private int indexFor(String column) {
+        int index = find(column);
+        if (index >= 0) {
+            return index;
+        }
+        if (size == columns.length) {
+            int capacity = size * 2;
+            columns = Arrays.copyOf(columns, capacity);
+            values = Arrays.copyOf(values, capacity);
+            codes = Arrays.copyOf(codes, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            unboxed = Arrays.copyOf(unboxed, capacity);
+        }
+        columns[size] = column;
+        return size++;
     }
 }
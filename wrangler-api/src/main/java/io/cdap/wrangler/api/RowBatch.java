@@ -0,0 +1,71 @@
+package io.cdap.wrangler.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reusable batch of rows.
+ * 
+ * Rows handed out by {@link #next()} are kept after {@link #clear()} and reset
+ * instead of reallocated when the batch is filled again, so a batch that is
+ * cleared and refilled with rows of the same shape does not allocate.
+ * A batch is not thread-safe.
+ */
+public class RowBatch {
+    private final List<Row> pool;
+    private final List<Row> rows;
+    
+    /**
+     * Creates a new RowBatch.
+     * 
+     * @param capacity The expected number of rows
+     */
+    public RowBatch(int capacity) {
+        this.pool = new ArrayList<>(capacity);
+        this.rows = new ArrayList<>(capacity);
+    }
+    
+    /**
+     * Adds a row to the batch, reusing a previously allocated row if there is one.
+     * 
+     * @return An empty row
+     */
+    public Row next() {
+        Row row;
+        int index = rows.size();
+        if (index < pool.size()) {
+            row = pool.get(index);
+            row.reset();
+        } else {
+            row = new Row();
+            pool.add(row);
+        }
+        rows.add(row);
+        return row;
+    }
+    
+    /**
+     * Gets the rows of the batch. The list is reused and stays valid until the batch is cleared.
+     * 
+     * @return The rows
+     */
+    public List<Row> rows() {
+        return rows;
+    }
+    
+    /**
+     * Gets the number of rows in the batch.
+     * 
+     * @return The number of rows
+     */
+    public int size() {
+        return rows.size();
+    }
+    
+    /**
+     * Empties the batch. Its rows are kept for reuse.
+     */
+    public void clear() {
+        rows.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package io.cdap.wrangler.api;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of {@link RowBatch}es shared between threads, e.g. between a
+ * reader filling batches and a writer draining them.
+ */
+public class RowBatchPool {
+    private final BlockingQueue<RowBatch> free;
+    private final int batchSize;
+    
+    /**
+     * Creates a new RowBatchPool.
+     * 
+     * @param batches Maximum number of idle batches kept
+     * @param batchSize The expected number of rows per batch
+     */
+    public RowBatchPool(int batches, int batchSize) {
+        this.free = new ArrayBlockingQueue<>(batches);
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Takes an empty batch from the pool, or creates one if the pool is empty.
+     * 
+     * @return An empty batch
+     */
+    public RowBatch acquire() {
+        RowBatch batch = free.poll();
+        return batch != null ? batch : new RowBatch(batchSize);
+    }
+    
+    /**
+     * Clears a batch and returns it to the pool. The batch is dropped if the pool is full.
+     * 
+     * @param batch The batch
+     */
+    public void release(RowBatch batch) {
+        batch.clear();
+        free.offer(batch);
+    }
+}
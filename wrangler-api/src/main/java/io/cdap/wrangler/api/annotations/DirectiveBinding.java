@@ -0,0 +1,31 @@
+package io.cdap.wrangler.api.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the constructor used to create a directive from a recipe.
+ * 
+ * At build time a {@link io.cdap.wrangler.api.parser.DirectiveBinder} named
+ * {@code <Directive>Binder} is generated next to the directive. Constructor
+ * parameters are bound positionally to the recipe arguments and must appear in
+ * the same order as in the directive's {@code UsageDefinition}. Supported types
+ * are {@code String} (text or column), {@code int}, {@code long}, {@code double},
+ * {@code boolean}, {@code ByteSize}, {@code TimeDuration}, and {@code Optional}
+ * of any of these for trailing optional arguments. The directive is also added
+ * to the module's directive index, so that it can be looked up by name.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.CONSTRUCTOR)
+public @interface DirectiveBinding {
+    /**
+     * Gets the directive name, as used in recipes.
+     * 
+     * @return The directive name
+     */
+    String value();
+}
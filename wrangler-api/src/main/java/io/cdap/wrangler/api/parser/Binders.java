@@ -0,0 +1,205 @@
+package io.cdap.wrangler.api.parser;
+
+import io.cdap.wrangler.api.DirectiveParseException;
+
+import java.util.List;
+
+/**
+ * Token conversions used by generated {@link DirectiveBinder}s.
+ */
+public final class Binders {
+    
+    private Binders() {
+    }
+    
+    /**
+     * Checks the number of arguments.
+     * 
+     * @param directive The directive name
+     * @param arguments The argument tokens
+     * @param required Number of required arguments
+     * @param max Maximum number of arguments
+     * @throws DirectiveParseException If the number of arguments is out of range
+     */
+    public static void checkArity(String directive, List<Token> arguments, int required, int max)
+        throws DirectiveParseException {
+        int count = arguments.size();
+        if (count < required || count > max) {
+            String expected = required == max ? String.valueOf(required) : required + " to " + max;
+            throw new DirectiveParseException("Directive '" + directive + "' expects " + expected
+                                              + " arguments, but got " + count);
+        }
+    }
+    
+    /**
+     * Checks the type of each argument against the usage definition of the directive.
+     * 
+     * @param directive The directive name
+     * @param usage The usage definition
+     * @param arguments The argument tokens
+     * @throws DirectiveParseException If an argument has another type than defined
+     */
+    public static void checkTypes(String directive, UsageDefinition usage, List<Token> arguments)
+        throws DirectiveParseException {
+        List<UsageDefinition.Argument> definitions = usage.getArguments();
+        int count = Math.min(arguments.size(), definitions.size());
+        for (int i = 0; i < count; i++) {
+            UsageDefinition.Argument definition = definitions.get(i);
+            Token token = arguments.get(i);
+            if (token.type() != definition.getType()) {
+                throw mismatch(directive, definition.getName(), describe(definition.getType()), token);
+            }
+        }
+    }
+    
+    /**
+     * Converts a column, text or numeric token to a string.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The string value
+     * @throws DirectiveParseException If the token has no string form
+     */
+    public static String string(String directive, String argument, Token token) throws DirectiveParseException {
+        switch (token.type()) {
+            case COLUMN:
+            case TEXT:
+            case NUMERIC:
+            case DIRECTIVE_NAME:
+                return token.value().toString();
+            default:
+                throw mismatch(directive, argument, "text or column", token);
+        }
+    }
+    
+    /**
+     * Converts a numeric token to an int.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The int value
+     * @throws DirectiveParseException If the token is not an integer
+     */
+    public static int intValue(String directive, String argument, Token token) throws DirectiveParseException {
+        Number number = number(directive, argument, token);
+        if (number.doubleValue() != number.intValue()) {
+            throw mismatch(directive, argument, "integer", token);
+        }
+        return number.intValue();
+    }
+    
+    /**
+     * Converts a numeric token to a long.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The long value
+     * @throws DirectiveParseException If the token is not an integer
+     */
+    public static long longValue(String directive, String argument, Token token) throws DirectiveParseException {
+        Number number = number(directive, argument, token);
+        if (number.doubleValue() != number.longValue()) {
+            throw mismatch(directive, argument, "integer", token);
+        }
+        return number.longValue();
+    }
+    
+    /**
+     * Converts a numeric token to a double.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The double value
+     * @throws DirectiveParseException If the token is not numeric
+     */
+    public static double doubleValue(String directive, String argument, Token token)
+        throws DirectiveParseException {
+        return number(directive, argument, token).doubleValue();
+    }
+    
+    /**
+     * Converts a boolean or text token to a boolean.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The boolean value
+     * @throws DirectiveParseException If the token is not a boolean
+     */
+    public static boolean booleanValue(String directive, String argument, Token token)
+        throws DirectiveParseException {
+        String value = token.value().toString();
+        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+            return Boolean.parseBoolean(value);
+        }
+        throw mismatch(directive, argument, "boolean", token);
+    }
+    
+    /**
+     * Casts a byte size token.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The byte size
+     * @throws DirectiveParseException If the token is not a byte size
+     */
+    public static ByteSize byteSize(String directive, String argument, Token token) throws DirectiveParseException {
+        if (token instanceof ByteSize) {
+            return (ByteSize) token;
+        }
+        throw mismatch(directive, argument, "byte size", token);
+    }
+    
+    /**
+     * Casts a time duration token.
+     * 
+     * @param directive The directive name
+     * @param argument The argument name
+     * @param token The token
+     * @return The time duration
+     * @throws DirectiveParseException If the token is not a time duration
+     */
+    public static TimeDuration timeDuration(String directive, String argument, Token token)
+        throws DirectiveParseException {
+        if (token instanceof TimeDuration) {
+            return (TimeDuration) token;
+        }
+        throw mismatch(directive, argument, "time duration", token);
+    }
+    
+    private static Number number(String directive, String argument, Token token) throws DirectiveParseException {
+        if (token.type() != TokenType.NUMERIC || !(token.value() instanceof Number)) {
+            throw mismatch(directive, argument, "number", token);
+        }
+        return (Number) token.value();
+    }
+    
+    private static String describe(TokenType type) {
+        switch (type) {
+            case COLUMN:
+                return "column";
+            case NUMERIC:
+                return "number";
+            case BOOLEAN:
+                return "boolean";
+            case BYTE_SIZE:
+                return "byte size";
+            case TIME_DURATION:
+                return "time duration";
+            default:
+                return "text";
+        }
+    }
+    
+    private static DirectiveParseException mismatch(String directive, String argument, String expected,
+                                                    Token token) {
+        return new DirectiveParseException("Argument '" + argument + "' of directive '" + directive
+                                           + "' must be a " + expected + ", but got " + token.type()
+                                           + " '" + token + "'");
+    }
+}
@@ -168,13 +168,13 @@ public class ByteSize implements Token {
             case "KB":
                 return bytes / 1024;
             case "MB":
-                return bytes / (1024 * 1024);
+                return bytes / (1024L * 1024);
             case "GB":
-                return bytes / (1024 * 1024 * 1024);
+                return bytes / (1024L * 1024 * 1024);
             case "TB":
-                return bytes / (1024 * 1024 * 1024 * 1024);
+                return bytes / (1024L * 1024 * 1024 * 1024);
             case "PB":
-                return bytes / (1024 * 1024 * 1024 * 1024 * 1024);
+                return bytes / (1024L * 1024 * 1024 * 1024 * 1024);
             default:
                 return bytes; // Should never reach here due to validation
         }
@@ -0,0 +1,42 @@
+package io.cdap.wrangler.api.parser;
+
+/**
+ * Column reference token, written as {@code :name} in a recipe.
+ */
+public class ColumnName implements Token {
+    private final String name;
+    
+    /**
+     * Creates a new ColumnName token.
+     * 
+     * @param name The column name, without the leading colon
+     */
+    public ColumnName(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Gets the column name.
+     * 
+     * @return The column name
+     */
+    @Override
+    public Object value() {
+        return name;
+    }
+    
+    /**
+     * Gets the token type.
+     * 
+     * @return TokenType.COLUMN
+     */
+    @Override
+    public TokenType type() {
+        return TokenType.COLUMN;
+    }
+    
+    @Override
+    public String toString() {
+        return ":" + name;
+    }
+}
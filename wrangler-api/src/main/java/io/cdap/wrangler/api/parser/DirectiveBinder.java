@@ -0,0 +1,33 @@
+package io.cdap.wrangler.api.parser;
+
+import io.cdap.wrangler.api.DirectiveParseException;
+
+import java.util.List;
+
+/**
+ * Constructs a directive from the argument tokens of a parsed recipe line.
+ * 
+ * Implementations are generated at build time for every constructor annotated with
+ * {@link io.cdap.wrangler.api.annotations.DirectiveBinding}. Each generated binder
+ * converts the tokens to the exact constructor parameter types and calls the
+ * constructor directly, without reflection.
+ * 
+ * @param <T> The directive type
+ */
+public interface DirectiveBinder<T> {
+    /**
+     * Gets the name of the directive, as used in recipes.
+     * 
+     * @return The directive name
+     */
+    String getName();
+    
+    /**
+     * Creates a directive from its argument tokens.
+     * 
+     * @param arguments The argument tokens, in recipe order
+     * @return The directive
+     * @throws DirectiveParseException If the arguments do not match the directive
+     */
+    T bind(List<Token> arguments) throws DirectiveParseException;
+}
@@ -0,0 +1,42 @@
+package io.cdap.wrangler.api.parser;
+
+/**
+ * Numeric token, for integer and decimal literals.
+ */
+public class Numeric implements Token {
+    private final Number value;
+    
+    /**
+     * Creates a new Numeric token.
+     * 
+     * @param value The number
+     */
+    public Numeric(Number value) {
+        this.value = value;
+    }
+    
+    /**
+     * Gets the number.
+     * 
+     * @return The number
+     */
+    @Override
+    public Object value() {
+        return value;
+    }
+    
+    /**
+     * Gets the token type.
+     * 
+     * @return TokenType.NUMERIC
+     */
+    @Override
+    public TokenType type() {
+        return TokenType.NUMERIC;
+    }
+    
+    @Override
+    public String toString() {
+        return value.toString();
+    }
+}
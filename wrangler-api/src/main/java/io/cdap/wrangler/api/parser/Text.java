@@ -0,0 +1,42 @@
+package io.cdap.wrangler.api.parser;
+
+/**
+ * Text token, for identifiers and string literals.
+ */
+public class Text implements Token {
+    private final String value;
+    
+    /**
+     * Creates a new Text token.
+     * 
+     * @param value The text, without enclosing quotes
+     */
+    public Text(String value) {
+        this.value = value;
+    }
+    
+    /**
+     * Gets the text.
+     * 
+     * @return The text
+     */
+    @Override
+    public Object value() {
+        return value;
+    }
+    
+    /**
+     * Gets the token type.
+     * 
+     * @return TokenType.TEXT
+     */
+    @Override
+    public TokenType type() {
+        return TokenType.TEXT;
+    }
+    
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -174,15 +174,15 @@ public class TimeDuration implements Token {
             case "us":
                 return nanos / 1000;
             case "ms":
-                return nanos / (1000 * 1000);
+                return nanos / (1000L * 1000);
             case "s":
-                return nanos / (1000 * 1000 * 1000);
+                return nanos / (1000L * 1000 * 1000);
             case "m":
-                return nanos / (60 * 1000 * 1000 * 1000);
+                return nanos / (60L * 1000 * 1000 * 1000);
             case "h":
-                return nanos / (60 * 60 * 1000 * 1000 * 1000);
+                return nanos / (60L * 60 * 1000 * 1000 * 1000);
             case "d":
-                return nanos / (24 * 60 * 60 * 1000 * 1000 * 1000);
+                return nanos / (24L * 60 * 60 * 1000 * 1000 * 1000);
             default:
                 return nanos; // Should never reach here due to validation
         }
@@ -0,0 +1,308 @@
+package io.cdap.wrangler.api.processor;
+
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a {@link io.cdap.wrangler.api.parser.DirectiveBinder} for each constructor
+ * annotated with {@link DirectiveBinding}.
+ * 
+ * The generated binder checks the argument count and the token type of each
+ * argument against the {@code usage()} definition of the directive, and then
+ * converts each token with a conversion chosen at build time from the parameter
+ * type, so binding a directive costs a handful of type checks and a direct
+ * constructor call.
+ * 
+ * The processor also writes an index of all binders of the module to
+ * {@value #INDEX}, one {@code name=binderClass} line per directive, so that a
+ * registry can find directives without scanning the classpath or loading their classes.
+ */
+public class DirectiveBindingProcessor extends AbstractProcessor {
+    private static final String OPTIONAL = "io.cdap.wrangler.api.Optional";
+    private static final String PARSE_EXCEPTION = "io.cdap.wrangler.api.DirectiveParseException";
+    private static final String BINDERS = "io.cdap.wrangler.api.parser.Binders";
+    private static final String USAGE = "io.cdap.wrangler.api.parser.UsageDefinition";
+    
+    /**
+     * Location of the directive index on the classpath.
+     */
+    public static final String INDEX = "META-INF/wrangler/directives.index";
+    
+    private final Map<String, String> index = new TreeMap<>();
+    private final List<Element> indexed = new ArrayList<>();
+    
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(DirectiveBinding.class.getName());
+    }
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return true;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(DirectiveBinding.class)) {
+            ExecutableElement constructor = (ExecutableElement) element;
+            TypeElement directive = (TypeElement) constructor.getEnclosingElement();
+            if (!validate(constructor, directive)) {
+                continue;
+            }
+            String name = constructor.getAnnotation(DirectiveBinding.class).value();
+            String binder = directive.getQualifiedName() + "Binder";
+            String existing = index.putIfAbsent(name, binder);
+            if (existing != null) {
+                error(constructor, "Directive '" + name + "' is already bound by " + existing);
+                continue;
+            }
+            indexed.add(directive);
+            try {
+                generate(constructor, directive, name);
+            } catch (IOException e) {
+                error(constructor, "Unable to write binder for " + directive.getQualifiedName() + ": "
+                    + e.getMessage());
+            }
+        }
+        return true;
+    }
+    
+    private void writeIndex() {
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX,
+                                                                      indexed.toArray(new Element[0]));
+            try (PrintWriter out = new PrintWriter(file.openWriter())) {
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    out.println(entry.getKey() + "=" + entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + INDEX + ": "
+                + e.getMessage());
+        }
+    }
+    
+    private boolean validate(ExecutableElement constructor, TypeElement directive) {
+        if (directive.getNestingKind() != NestingKind.TOP_LEVEL || !directive.getModifiers().contains(Modifier.PUBLIC)
+            || directive.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(constructor, "@DirectiveBinding directive must be a public, concrete, top-level class");
+            return false;
+        }
+        if (!constructor.getModifiers().contains(Modifier.PUBLIC)) {
+            error(constructor, "@DirectiveBinding constructor must be public");
+            return false;
+        }
+        boolean optional = false;
+        for (VariableElement parameter : constructor.getParameters()) {
+            TypeMirror type = parameter.asType();
+            boolean isOptional = isOptional(type);
+            if (optional && !isOptional) {
+                error(parameter, "Required argument '" + parameter.getSimpleName() + "' follows an optional one");
+                return false;
+            }
+            optional |= isOptional;
+            TypeMirror bound = isOptional ? optionalElement(type) : type;
+            if (bound == null || conversion(bound) == null) {
+                error(parameter, "Unsupported @DirectiveBinding argument type: " + type);
+                return false;
+            }
+        }
+        if (!hasUsage(directive)) {
+            error(constructor, "@DirectiveBinding directive must define public static UsageDefinition usage()");
+            return false;
+        }
+        TypeMirror parseException = processingEnv.getElementUtils().getTypeElement(PARSE_EXCEPTION).asType();
+        TypeMirror runtimeException = processingEnv.getElementUtils()
+            .getTypeElement(RuntimeException.class.getName()).asType();
+        TypeMirror error = processingEnv.getElementUtils().getTypeElement(Error.class.getName()).asType();
+        for (TypeMirror thrown : constructor.getThrownTypes()) {
+            if (!processingEnv.getTypeUtils().isAssignable(thrown, parseException)
+                && !processingEnv.getTypeUtils().isAssignable(thrown, runtimeException)
+                && !processingEnv.getTypeUtils().isAssignable(thrown, error)) {
+                error(constructor, "@DirectiveBinding constructor may only throw DirectiveParseException");
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private boolean hasUsage(TypeElement directive) {
+        for (Element member : directive.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD && member.getSimpleName().contentEquals("usage")
+                && member.getModifiers().contains(Modifier.PUBLIC) && member.getModifiers().contains(Modifier.STATIC)
+                && ((ExecutableElement) member).getParameters().isEmpty()
+                && USAGE.equals(qualifiedName(((ExecutableElement) member).getReturnType()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void generate(ExecutableElement constructor, TypeElement directive, String name) throws IOException {
+        String packageName = processingEnv.getElementUtils().getPackageOf(directive).getQualifiedName().toString();
+        String directiveName = directive.getSimpleName().toString();
+        String binderName = directiveName + "Binder";
+        List<? extends VariableElement> parameters = constructor.getParameters();
+        int required = 0;
+        for (VariableElement parameter : parameters) {
+            if (!isOptional(parameter.asType())) {
+                required++;
+            }
+        }
+        
+        JavaFileObject file = processingEnv.getFiler()
+            .createSourceFile(packageName.isEmpty() ? binderName : packageName + "." + binderName, directive);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("/**");
+            out.println(" * Binds recipe arguments to {@link " + directiveName + "}.");
+            out.println(" * Generated by " + getClass().getSimpleName() + ", do not edit.");
+            out.println(" */");
+            out.println("public final class " + binderName
+                + " implements io.cdap.wrangler.api.parser.DirectiveBinder<" + directiveName + "> {");
+            out.println("    private static final String NAME = \"" + escape(name) + "\";");
+            out.println("    private static final " + USAGE + " USAGE = " + directiveName + ".usage();");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String getName() {");
+            out.println("        return NAME;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + directiveName + " bind(java.util.List<io.cdap.wrangler.api.parser.Token> arguments)");
+            out.println("        throws " + PARSE_EXCEPTION + " {");
+            out.println("        " + BINDERS + ".checkArity(NAME, arguments, " + required + ", "
+                + parameters.size() + ");");
+            out.println("        " + BINDERS + ".checkTypes(NAME, USAGE, arguments);");
+            out.print("        return new " + directiveName + "(");
+            for (int i = 0; i < parameters.size(); i++) {
+                VariableElement parameter = parameters.get(i);
+                String argument = "\"" + parameter.getSimpleName() + "\"";
+                TypeMirror type = parameter.asType();
+                out.println(i == 0 ? "" : ",");
+                if (isOptional(type)) {
+                    TypeMirror element = optionalElement(type);
+                    out.print("            arguments.size() > " + i
+                        + " ? " + OPTIONAL + ".of(" + convert(element, argument, i) + ")"
+                        + " : " + OPTIONAL + ".<" + boxed(element) + ">of(null)");
+                } else {
+                    out.print("            " + convert(type, argument, i));
+                }
+            }
+            out.println(");");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+    
+    private String convert(TypeMirror type, String argument, int index) {
+        return BINDERS + "." + conversion(type) + "(NAME, " + argument + ", arguments.get(" + index + "))";
+    }
+    
+    /**
+     * Gets the name of the Binders method converting a token to the given type.
+     */
+    private String conversion(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return "intValue";
+            case LONG:
+                return "longValue";
+            case DOUBLE:
+                return "doubleValue";
+            case BOOLEAN:
+                return "booleanValue";
+            case DECLARED:
+                break;
+            default:
+                return null;
+        }
+        switch (qualifiedName(type)) {
+            case "java.lang.String":
+                return "string";
+            case "java.lang.Integer":
+                return "intValue";
+            case "java.lang.Long":
+                return "longValue";
+            case "java.lang.Double":
+                return "doubleValue";
+            case "java.lang.Boolean":
+                return "booleanValue";
+            case "io.cdap.wrangler.api.parser.ByteSize":
+                return "byteSize";
+            case "io.cdap.wrangler.api.parser.TimeDuration":
+                return "timeDuration";
+            default:
+                return null;
+        }
+    }
+    
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type)
+                .getQualifiedName().toString();
+        }
+        return qualifiedName(type);
+    }
+    
+    private boolean isOptional(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED && OPTIONAL.equals(qualifiedName(type));
+    }
+    
+    private TypeMirror optionalElement(TypeMirror type) {
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+        return typeArguments.size() == 1 ? typeArguments.get(0) : null;
+    }
+    
+    private String qualifiedName(TypeMirror type) {
+        Element element = processingEnv.getTypeUtils().asElement(type);
+        if (element == null || (element.getKind() != ElementKind.CLASS && element.getKind() != ElementKind.ENUM)) {
+            return "";
+        }
+        return ((TypeElement) element).getQualifiedName().toString();
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+    
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,119 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.steps.transformation.AggregateState;
+import io.cdap.wrangler.steps.transformation.ConcurrentAggregateState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how {@link ConcurrentAggregateState} scales with the number of producer
+ * threads, against a single {@link AggregateState} behind a lock.
+ * 
+ * Scores are updates per microsecond summed over all threads, for 1, 4 and 32
+ * producers, and for 31 producers with one thread taking snapshots all along.
+ * Scaling can only be observed up to the number of available cores:
+ * {@code java -jar wrangler-benchmarks/target/benchmarks.jar ConcurrentAggregate}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentAggregateBenchmark {
+    
+    /**
+     * A shared state under test.
+     */
+    private interface Shared {
+        void add(double bytes, double nanos);
+        
+        AggregateState snapshot();
+    }
+    
+    private static final class Locked implements Shared {
+        private final AggregateState state = new AggregateState();
+        
+        @Override
+        public synchronized void add(double bytes, double nanos) {
+            state.add(bytes, nanos);
+            state.advance();
+        }
+        
+        @Override
+        public synchronized AggregateState snapshot() {
+            return state.snapshot();
+        }
+    }
+    
+    @Param({"locked", "concurrent"})
+    private String mode;
+    
+    private Shared shared;
+    
+    @Setup
+    public void setup() {
+        if (mode.equals("locked")) {
+            shared = new Locked();
+        } else {
+            ConcurrentAggregateState state = new ConcurrentAggregateState();
+            shared = new Shared() {
+                @Override
+                public void add(double bytes, double nanos) {
+                    state.add(bytes, nanos);
+                }
+                
+                @Override
+                public AggregateState snapshot() {
+                    return state.snapshot();
+                }
+            };
+        }
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public void producers01() {
+        shared.add(1536, 250_000);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public void producers04() {
+        shared.add(1536, 250_000);
+    }
+    
+    @Benchmark
+    @Threads(32)
+    public void producers32() {
+        shared.add(1536, 250_000);
+    }
+    
+    @Benchmark
+    @Group("snapshots")
+    @GroupThreads(31)
+    public void produce() {
+        shared.add(1536, 250_000);
+    }
+    
+    @Benchmark
+    @Group("snapshots")
+    @GroupThreads(1)
+    public AggregateState snapshot() {
+        return shared.snapshot();
+    }
+}
@@ -0,0 +1,131 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.steps.transformation.ConcurrentAggregateState;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures aggregate-stats accumulator throughput as the number of producer threads grows.
+ * 
+ * Compares a lock around shared sums, separate JDK adders, and the per-thread cells of
+ * {@link ConcurrentAggregateState}. Each producer adds values as fast as it can for
+ * a fixed time; the table reports total updates per second and the speedup over one
+ * thread. Scaling can only be observed up to the number of available cores.
+ * 
+ * Usage: {@code ContentionBenchmark [seconds-per-point] [max-threads]}
+ */
+public class ContentionBenchmark {
+    
+    /**
+     * An accumulator under test.
+     */
+    private interface Accumulator {
+        void add(double bytes, double nanos);
+    }
+    
+    private static final class Locked implements Accumulator {
+        private double bytes;
+        private double nanos;
+        private long count;
+        
+        @Override
+        public synchronized void add(double bytes, double nanos) {
+            this.bytes += bytes;
+            this.nanos += nanos;
+            this.count++;
+        }
+    }
+    
+    private static final class Adders implements Accumulator {
+        private final DoubleAdder bytes = new DoubleAdder();
+        private final DoubleAdder nanos = new DoubleAdder();
+        private final LongAdder count = new LongAdder();
+        
+        @Override
+        public void add(double bytes, double nanos) {
+            this.bytes.add(bytes);
+            this.nanos.add(nanos);
+            this.count.increment();
+        }
+    }
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optionally, the seconds per measurement and the maximum thread count
+     * @throws InterruptedException If interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 2;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        System.out.println("cores=" + Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %8s %16s %8s%n", "mode", "threads", "updates/s", "speedup");
+        for (String mode : new String[] {"locked", "adders", "cells"}) {
+            double single = 0;
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double throughput = run(create(mode), threads, seconds);
+                if (threads == 1) {
+                    single = throughput;
+                }
+                System.out.printf("%-10s %8d %16.0f %8.2f%n", mode, threads, throughput, throughput / single);
+            }
+        }
+    }
+    
+    private static Accumulator create(String mode) {
+        switch (mode) {
+            case "locked":
+                return new Locked();
+            case "adders":
+                return new Adders();
+            default:
+                ConcurrentAggregateState state = new ConcurrentAggregateState();
+                return state::add;
+        }
+    }
+    
+    private static double run(Accumulator accumulator, int threads, double seconds) throws InterruptedException {
+        long duration = (long) (seconds * 1_000_000_000L);
+        long[] updates = new long[threads];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            producers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long deadline = System.nanoTime() + duration;
+                long local = 0;
+                double bytes = 1024 + index;
+                // Check the clock every 1024 updates to keep it out of the measurement
+                while (true) {
+                    for (int i = 0; i < 1024; i++) {
+                        accumulator.add(bytes, 250_000);
+                    }
+                    local += 1024;
+                    if (System.nanoTime() >= deadline) {
+                        break;
+                    }
+                }
+                updates[index] = local;
+            }, "producer-" + t);
+            producers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        long total = 0;
+        for (long count : updates) {
+            total += count;
+        }
+        return total * 1e9 / elapsed;
+    }
+}
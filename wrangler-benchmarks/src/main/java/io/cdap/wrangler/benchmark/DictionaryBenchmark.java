@@ -0,0 +1,79 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.source.DelimitedReader;
+import io.cdap.wrangler.steps.transformation.FilterSize;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a delimited file with repeated host, status and size values
+ * into rows and filtering them by size, with plain strings and with a shared
+ * {@link Dictionary}.
+ * 
+ * Scores are per row. Run with the GC profiler to see {@code gc.alloc.rate.norm}:
+ * {@code java -jar wrangler-benchmarks/target/benchmarks.jar Dictionary -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+    private static final int ROWS = 16384;
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    private final Dictionary dictionary = new Dictionary();
+    private byte[] data;
+    private FilterSize filter;
+    
+    @Setup
+    public void setup() throws SyntaxError, DirectiveParseException {
+        String[] units = {"B", "KB", "MB", "GB"};
+        StringBuilder out = new StringBuilder("host,status,size,id\n");
+        for (int i = 0; i < ROWS; i++) {
+            out.append("host-").append(i % 50).append(',').append(i % 7 == 0 ? "error" : "ok").append(',')
+                .append(i % 200).append(units[i % units.length]).append(',').append(i).append('\n');
+        }
+        data = out.toString().getBytes(StandardCharsets.UTF_8);
+        filter = new FilterSize("size", ">=", new ByteSize("1MB"));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Row> plain() throws IOException, DirectiveExecutionException {
+        try (DelimitedReader reader = new DelimitedReader(new ByteArrayInputStream(data), ',')) {
+            return filter.execute(reader.read(ROWS), CONTEXT);
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<Row> encoded() throws IOException, DirectiveExecutionException {
+        try (DelimitedReader reader = new DelimitedReader(new ByteArrayInputStream(data), ',', dictionary)) {
+            return filter.execute(reader.read(ROWS), CONTEXT);
+        }
+    }
+}
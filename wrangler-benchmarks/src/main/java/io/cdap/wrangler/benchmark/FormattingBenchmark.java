@@ -0,0 +1,106 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.units.UnitFormatter;
+import io.cdap.wrangler.units.UnitParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares formatting byte sizes with {@code convertFromBytes} and {@code String.format},
+ * with {@link UnitFormatter} with and without its cache, and parsing the same
+ * strings with {@link UnitParser}. Scores are per value.
+ * 
+ * {@code java -jar wrangler-benchmarks/target/benchmarks.jar Formatting -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormattingBenchmark {
+    private static final int VALUES = 4096;
+    
+    private final double[] distinct = new double[VALUES];
+    private final double[] repeated = new double[VALUES];
+    private final String[] strings = new String[VALUES];
+    private final StringBuilder out = new StringBuilder(32);
+    private UnitFormatter cached;
+    private UnitFormatter uncached;
+    private ByteSize converter;
+    
+    @Setup
+    public void setup() throws SyntaxError {
+        Random random = new Random(42);
+        for (int i = 0; i < VALUES; i++) {
+            distinct[i] = Math.floor(Math.pow(2, random.nextDouble() * 40));
+            // Report columns usually repeat a small set of values
+            repeated[i] = Math.floor(Math.pow(2, random.nextInt(64) * 0.6));
+        }
+        cached = new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 2);
+        uncached = new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 2, 0);
+        for (int i = 0; i < VALUES; i++) {
+            strings[i] = uncached.format(distinct[i]);
+        }
+        converter = new ByteSize("1B");
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void stringFormat(Blackhole blackhole) {
+        for (double value : distinct) {
+            String unit = value >= 1024d * 1024 * 1024 ? "GB"
+                : value >= 1024 * 1024 ? "MB" : value >= 1024 ? "KB" : "B";
+            blackhole.consume(String.format("%.2f%s", converter.convertFromBytes(value, unit), unit));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void formatter(Blackhole blackhole) {
+        for (double value : distinct) {
+            blackhole.consume(uncached.format(value));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void formatterReusedBuilder(Blackhole blackhole) {
+        for (double value : distinct) {
+            out.setLength(0);
+            uncached.formatTo(value, out);
+            blackhole.consume(out.length());
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void formatterRepeatedValues(Blackhole blackhole) {
+        for (double value : repeated) {
+            blackhole.consume(cached.format(value));
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void parse(Blackhole blackhole) {
+        for (String value : strings) {
+            blackhole.consume(UnitParser.parse(value, UnitParser.Kind.BYTE_SIZE));
+        }
+    }
+}
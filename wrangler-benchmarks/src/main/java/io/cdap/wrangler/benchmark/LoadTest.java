@@ -0,0 +1,226 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Runs recipes against generated workloads and compares throughput and latency
+ * with a stored baseline.
+ * 
+ * The baseline file describes the scenarios. For each scenario {@code <name>} it
+ * holds {@code <name>.recipe} and the workload settings ({@code rows}, {@code batch},
+ * {@code seed}, {@code cardinality}, {@code zipf}, {@code malformed}, {@code width},
+ * {@code sizeUnits}, {@code durationUnits}), together with the recorded
+ * {@code rowsPerSecond} and {@code p99Micros}. Latency is measured per batch.
+ * A scenario fails if its throughput falls more than {@code threshold} below the
+ * baseline or its p99 latency rises more than {@code p99-threshold} above it.
+ * 
+ * Usage: {@code LoadTest --baseline=<file> [--scenario=<name>] [--threshold=0.2]
+ * [--p99-threshold=0.5] [--update]}. Tail latency is noisier than throughput,
+ * so it gets a wider default threshold.
+ * 
+ * Exits with 1 if any scenario regressed and 2 on a usage or configuration error.
+ * {@code --update} records the measured values as the new baseline instead.
+ */
+public class LoadTest {
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    /**
+     * Results of one scenario run.
+     */
+    private static final class Result {
+        private final double rowsPerSecond;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final long failedBatches;
+        
+        private Result(double rowsPerSecond, double p50Micros, double p99Micros, long failedBatches) {
+            this.rowsPerSecond = rowsPerSecond;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.failedBatches = failedBatches;
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Path baselineFile = null;
+        String only = null;
+        double threshold = 0.2;
+        double p99Threshold = 0.5;
+        boolean update = false;
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Paths.get(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--scenario=")) {
+                only = arg.substring("--scenario=".length());
+            } else if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(arg.substring("--threshold=".length()));
+            } else if (arg.startsWith("--p99-threshold=")) {
+                p99Threshold = Double.parseDouble(arg.substring("--p99-threshold=".length()));
+            } else if (arg.equals("--update")) {
+                update = true;
+            } else {
+                usage("Unknown argument: " + arg);
+            }
+        }
+        if (baselineFile == null) {
+            usage("Missing --baseline");
+        }
+        
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        List<String> scenarios = new ArrayList<>();
+        for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+            if (key.endsWith(".recipe")) {
+                String name = key.substring(0, key.length() - ".recipe".length());
+                if (only == null || only.equals(name)) {
+                    scenarios.add(name);
+                }
+            }
+        }
+        if (scenarios.isEmpty()) {
+            usage("No scenario " + (only == null ? "" : only + " ") + "in " + baselineFile);
+        }
+        
+        DirectiveRegistry registry = DirectiveRegistry.load(LoadTest.class.getClassLoader());
+        boolean regressed = false;
+        for (String name : scenarios) {
+            Result result = run(registry, name, baseline);
+            System.out.printf("%s: %.0f rows/s, p50 %.1fus, p99 %.1fus per batch, %d failed batches%n",
+                              name, result.rowsPerSecond, result.p50Micros, result.p99Micros,
+                              result.failedBatches);
+            if (update) {
+                baseline.setProperty(name + ".rowsPerSecond", String.format("%.0f", result.rowsPerSecond));
+                baseline.setProperty(name + ".p99Micros", String.format("%.1f", result.p99Micros));
+                continue;
+            }
+            String expectedRate = baseline.getProperty(name + ".rowsPerSecond");
+            String expectedP99 = baseline.getProperty(name + ".p99Micros");
+            if (expectedRate == null || expectedP99 == null) {
+                usage("No recorded baseline for " + name + "; run with --update first");
+            }
+            double minRate = Double.parseDouble(expectedRate) * (1 - threshold);
+            double maxP99 = Double.parseDouble(expectedP99) * (1 + p99Threshold);
+            if (result.rowsPerSecond < minRate) {
+                System.out.printf("  REGRESSION: throughput below %.0f rows/s (baseline %s)%n",
+                                  minRate, expectedRate);
+                regressed = true;
+            }
+            if (result.p99Micros > maxP99) {
+                System.out.printf("  REGRESSION: p99 above %.1fus (baseline %s)%n", maxP99, expectedP99);
+                regressed = true;
+            }
+        }
+        if (update) {
+            write(baseline, baselineFile);
+            System.out.println("Baseline updated: " + baselineFile);
+        } else if (regressed) {
+            System.exit(1);
+        }
+    }
+    
+    private static Result run(DirectiveRegistry registry, String name, Properties settings) throws Exception {
+        String recipe = settings.getProperty(name + ".recipe");
+        long rows = Long.parseLong(settings.getProperty(name + ".rows", "2000000"));
+        int batchSize = Integer.parseInt(settings.getProperty(name + ".batch", "1024"));
+        WorkloadGenerator.Builder workload = WorkloadGenerator.builder()
+            .seed(Long.parseLong(settings.getProperty(name + ".seed", "42")))
+            .cardinality(Integer.parseInt(settings.getProperty(name + ".cardinality", "10000")))
+            .zipf(Double.parseDouble(settings.getProperty(name + ".zipf", "0")))
+            .malformedRate(Double.parseDouble(settings.getProperty(name + ".malformed", "0")))
+            .width(Integer.parseInt(settings.getProperty(name + ".width", "0")));
+        if (settings.getProperty(name + ".sizeUnits") != null) {
+            workload.sizeUnits(settings.getProperty(name + ".sizeUnits"));
+        }
+        if (settings.getProperty(name + ".durationUnits") != null) {
+            workload.durationUnits(settings.getProperty(name + ".durationUnits"));
+        }
+        List<Directive> directives = new RecipeParser(registry).parse(recipe);
+        RecipeExecutor executor = new RecipeExecutor(directives, CONTEXT);
+        
+        // Warm up with a generator of its own so that the measured rows are the same in every run
+        WorkloadGenerator warmup = workload.build();
+        RowBatch batch = new RowBatch(batchSize);
+        for (long done = 0; done < rows / 4; done += batchSize) {
+            warmup.next(batch, batchSize);
+            execute(executor, batch);
+        }
+        
+        WorkloadGenerator generator = workload.build();
+        int batches = (int) ((rows + batchSize - 1) / batchSize);
+        long[] latencies = new long[batches];
+        long total = 0;
+        long failed = 0;
+        for (int i = 0; i < batches; i++) {
+            generator.next(batch, (int) Math.min(batchSize, rows - (long) i * batchSize));
+            long start = System.nanoTime();
+            if (!execute(executor, batch)) {
+                failed++;
+            }
+            latencies[i] = System.nanoTime() - start;
+            total += latencies[i];
+        }
+        Arrays.sort(latencies);
+        return new Result(rows * 1e9 / total, percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3,
+                          failed);
+    }
+    
+    /**
+     * Executes the recipe on a batch. Failing batches, e.g. on malformed values, are timed like the others.
+     */
+    private static boolean execute(RecipeExecutor executor, RowBatch batch) {
+        try {
+            executor.execute(batch.rows());
+            return true;
+        } catch (DirectiveExecutionException e) {
+            return false;
+        }
+    }
+    
+    private static double percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+    
+    private static void write(Properties baseline, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# Load test scenarios and baselines, see LoadTest. Update with --update.\n");
+            String scenario = null;
+            for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+                String name = key.substring(0, key.lastIndexOf('.'));
+                if (scenario != null && !scenario.equals(name)) {
+                    writer.write("\n");
+                }
+                scenario = name;
+                String value = baseline.getProperty(key).replace("\\", "\\\\").replace("\n", "\\n");
+                writer.write(key + "=" + value + "\n");
+            }
+        }
+    }
+    
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: LoadTest --baseline=<file> [--scenario=<name>] [--threshold=0.2] "
+                           + "[--p99-threshold=0.5] [--update]");
+        System.exit(2);
+    }
+}
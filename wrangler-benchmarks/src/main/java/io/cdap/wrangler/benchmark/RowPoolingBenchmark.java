@@ -0,0 +1,87 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.steps.transformation.AggregateStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares allocation per row of an aggregate-stats recipe over freshly allocated
+ * rows and over rows reused from a {@link RowBatch}.
+ * 
+ * Scores are per row. Run with the GC profiler to see {@code gc.alloc.rate.norm}:
+ * {@code java -jar wrangler-benchmarks/target/benchmarks.jar RowPooling -prof gc}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowPoolingBenchmark {
+    private static final int BATCH_SIZE = 1024;
+    private static final String SIZE = "size";
+    private static final String TIME = "time";
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    private final String[] sizes = new String[BATCH_SIZE];
+    private final String[] times = new String[BATCH_SIZE];
+    private final RowBatch batch = new RowBatch(BATCH_SIZE);
+    private AggregateStats directive;
+    
+    @Setup
+    public void setup() throws DirectiveParseException {
+        // Input values are prepared up front so that only the rows and the recipe are measured
+        String[] sizeUnits = {"B", "KB", "MB", "GB"};
+        String[] timeUnits = {"ns", "ms", "s", "m"};
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            sizes[i] = (i % 97) + "." + (i % 10) + sizeUnits[i % sizeUnits.length];
+            times[i] = (i % 89) + timeUnits[(i / 3) % timeUnits.length];
+        }
+        directive = new AggregateStats(SIZE, TIME, "total_size_mb", "total_time_sec",
+                                       Optional.of("MB"), Optional.of("s"), Optional.of("average"));
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Row> allocating() throws DirectiveExecutionException {
+        List<Row> rows = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Row row = new Row();
+            row.add(SIZE, sizes[i]);
+            row.add(TIME, times[i]);
+            rows.add(row);
+        }
+        return directive.execute(rows, CONTEXT);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<Row> pooled() throws DirectiveExecutionException {
+        batch.clear();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Row row = batch.next();
+            row.add(SIZE, sizes[i]);
+            row.add(TIME, times[i]);
+        }
+        return directive.execute(batch.rows(), CONTEXT);
+    }
+}
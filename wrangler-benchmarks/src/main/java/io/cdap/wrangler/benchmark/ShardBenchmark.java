@@ -0,0 +1,67 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.shard.ShardCoordinator;
+import io.cdap.wrangler.sink.AsyncFileSink;
+import io.cdap.wrangler.sink.DelimitedEncoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Measures how sharded execution scales with the number of worker processes.
+ * 
+ * Writes a generated file once, then runs an aggregate-stats recipe over it with
+ * 1, 2, 4, ... workers up to the given maximum and prints the time of each run,
+ * including worker startup. All runs must produce the same result.
+ * 
+ * Usage: {@code ShardBenchmark [rows] [max workers]}
+ */
+public class ShardBenchmark {
+    private static final String RECIPE = "filter-size :size >= 1KB\n"
+        + "aggregate-stats :size :latency total_size total_time MB s";
+    
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int maxWorkers = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        DirectiveRegistry registry = DirectiveRegistry.load(ShardBenchmark.class.getClassLoader());
+        
+        Path dir = Files.createTempDirectory("wrangler-shard");
+        Path file = dir.resolve("input.csv");
+        try {
+            WorkloadGenerator generator = WorkloadGenerator.builder().seed(42).cardinality(100_000).zipf(1.1)
+                .width(4).build();
+            try (AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).build()) {
+                for (int done = 0; done < rows; done += 65536) {
+                    List<Row> batch = generator.next(Math.min(65536, rows - done));
+                    sink.write(batch);
+                }
+            }
+            System.out.printf("%d rows, %.1f MB%n", rows, Files.size(file) / 1e6);
+            
+            Row first = null;
+            double single = 0;
+            for (int workers = 1; workers <= maxWorkers; workers *= 2) {
+                ShardCoordinator coordinator = ShardCoordinator.builder(registry).workers(workers).build();
+                long start = System.nanoTime();
+                Row result = coordinator.execute(file, RECIPE);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (first == null) {
+                    first = result;
+                    single = seconds;
+                } else if (first.getDouble("total_size") != result.getDouble("total_size")
+                    || first.getDouble("total_time") != result.getDouble("total_time")) {
+                    throw new IllegalStateException("Results differ with " + workers + " workers");
+                }
+                System.out.printf("%d workers: %.2fs, %.0f rows/s, speedup %.2fx%n",
+                                  workers, seconds, rows / seconds, single / seconds);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
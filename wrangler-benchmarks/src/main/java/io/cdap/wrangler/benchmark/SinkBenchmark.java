@@ -0,0 +1,102 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.sink.AsyncFileSink;
+import io.cdap.wrangler.sink.DelimitedEncoder;
+import io.cdap.wrangler.sink.SinkMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares writing rows with one blocking write per row against {@link AsyncFileSink}.
+ * 
+ * Reports how long the producing thread is busy with output, which is what
+ * directive threads pay, and the sink's throughput and queue depth.
+ * 
+ * Usage: {@code SinkBenchmark [rows] [fsync]}
+ */
+public class SinkBenchmark {
+    private static final int BATCH_SIZE = 4096;
+    
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        boolean fsync = args.length > 1 && Boolean.parseBoolean(args[1]);
+        List<List<Row>> batches = new ArrayList<>();
+        for (int i = 0; i < count; i += BATCH_SIZE) {
+            List<Row> batch = new ArrayList<>(BATCH_SIZE);
+            for (int j = i; j < Math.min(count, i + BATCH_SIZE); j++) {
+                Row row = new Row();
+                row.add("id", (long) j);
+                row.add("object", "object-" + (j % 10_000));
+                row.add("size", (j % 900) + "KB");
+                row.setDouble("latency_ms", (j % 5000) / 10.0);
+                batch.add(row);
+            }
+            batches.add(batch);
+        }
+        
+        Path dir = Files.createTempDirectory("wrangler-sink");
+        try {
+            // Warm up both paths once
+            perRow(dir.resolve("warmup-row.csv"), batches.subList(0, 1), fsync);
+            async(dir.resolve("warmup-async.csv"), batches.subList(0, 1), fsync);
+            
+            long start = System.nanoTime();
+            perRow(dir.resolve("row.csv"), batches, fsync);
+            double perRowSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("per-row writes: %.2fs busy, %.0f rows/s%n", perRowSeconds, count / perRowSeconds);
+            
+            start = System.nanoTime();
+            SinkMetrics metrics = async(dir.resolve("async.csv"), batches, fsync);
+            double total = (System.nanoTime() - start) / 1e9;
+            System.out.printf("async sink: %.2fs total%n  %s%n", total, metrics);
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+    
+    private static void perRow(Path file, List<List<Row>> batches, boolean fsync) throws IOException {
+        DelimitedEncoder encoder = new DelimitedEncoder(',');
+        StringBuilder line = new StringBuilder();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.APPEND)) {
+            encoder.header(batches.get(0).get(0), line);
+            for (List<Row> batch : batches) {
+                for (Row row : batch) {
+                    encoder.encode(row, line);
+                    channel.write(ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8)));
+                    line.setLength(0);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            }
+        }
+    }
+    
+    private static SinkMetrics async(Path file, List<List<Row>> batches, boolean fsync) throws IOException {
+        AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).fsync(fsync).build();
+        long start = System.nanoTime();
+        for (List<Row> batch : batches) {
+            sink.write(batch);
+        }
+        double busy = (System.nanoTime() - start) / 1e9;
+        sink.close();
+        System.out.printf("  producer busy: %.3fs%n", busy);
+        return sink.getMetrics();
+    }
+}
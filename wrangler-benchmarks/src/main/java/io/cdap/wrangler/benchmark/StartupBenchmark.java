@@ -0,0 +1,62 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cold start of a worker: the time from JVM start until the first
+ * row of a recipe has been processed.
+ * 
+ * Run it in a fresh JVM for every measurement, with and without
+ * {@code -XX:SharedArchiveFile}, to compare startup with a CDS archive.
+ * It is also the training workload used to create the archive.
+ */
+public class StartupBenchmark {
+    private static final String RECIPE = "filter-size :size >= 1KB\n"
+        + "aggregate-stats :size :time total_size total_time MB ms average\n";
+    
+    /**
+     * Runs the benchmark.
+     * 
+     * @param args Optionally, the recipe to run instead of the default one
+     * @throws Exception If the recipe fails
+     */
+    public static void main(String[] args) throws Exception {
+        long mainStart = System.nanoTime();
+        String recipe = args.length > 0 ? args[0] : RECIPE;
+        
+        DirectiveRegistry registry = DirectiveRegistry.load(StartupBenchmark.class.getClassLoader());
+        long registryLoaded = System.nanoTime();
+        
+        List<Directive> directives = new RecipeParser(registry).parse(recipe);
+        long recipeParsed = System.nanoTime();
+        
+        Row row = new Row();
+        row.add("size", "1.5MB");
+        row.add("time", "230ms");
+        List<Row> rows = new ArrayList<>();
+        rows.add(row);
+        ExecutorContext context = () -> ExecutorContext.Environment.TRANSFORM;
+        List<Row> result = new RecipeExecutor(directives, context).execute(rows);
+        long firstRow = System.nanoTime();
+        
+        // Read only after the first row, so loading the management classes is not measured
+        long sinceJvmStart = ManagementFactory.getRuntimeMXBean().getUptime();
+        
+        System.out.println("registry.load.us=" + (registryLoaded - mainStart) / 1000);
+        System.out.println("recipe.parse.us=" + (recipeParsed - registryLoaded) / 1000);
+        System.out.println("first.row.us=" + (firstRow - recipeParsed) / 1000);
+        System.out.println("main.to.first.row.us=" + (firstRow - mainStart) / 1000);
+        System.out.println("jvm.start.to.first.row.ms=" + sinceJvmStart);
+        System.out.println("directives.known=" + registry.getNames().size());
+        System.out.println("rows.out=" + result.size());
+    }
+}
@@ -0,0 +1,309 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a deterministic stream of synthetic rows with byte size and time
+ * duration columns, for load tests and benchmarks.
+ * 
+ * Each row has a {@value #KEY} column, a {@value #SIZE} column such as
+ * {@code 12.5MB}, a {@value #DURATION} column such as {@code 230ms}, and
+ * {@code width} filler columns {@code c0, c1, ...}. Every column draws from its
+ * own pool of {@code cardinality} distinct values, picked with a Zipf
+ * distribution whose exponent sets the skew (0 is uniform). The unit of each
+ * distinct size and duration is chosen from a weighted mix, and a configurable
+ * fraction of size and duration values is malformed. The same settings and seed always produce the same rows.
+ */
+public final class WorkloadGenerator {
+    public static final String KEY = "key";
+    public static final String SIZE = "size";
+    public static final String DURATION = "latency";
+    
+    private static final String[] MALFORMED = {"", "12XB", "MB", "1.2.3KB", "-", "fast", "12 m s", "NaNms"};
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    
+    private final SplittableRandom random;
+    private final String[] keys;
+    private final String[] sizes;
+    private final String[] durations;
+    private final String[] fillerColumns;
+    private final String[] fillerValues;
+    private final double[] cdf;
+    private final double malformedRate;
+    
+    /**
+     * Builder for {@link WorkloadGenerator}.
+     */
+    public static final class Builder {
+        private long seed = 1;
+        private int cardinality = 1000;
+        private double zipf;
+        private double malformedRate;
+        private int width;
+        private String sizeUnits = "B:1,KB:3,MB:4,GB:2";
+        private String durationUnits = "us:2,ms:6,s:2";
+        
+        private Builder() {
+        }
+        
+        /**
+         * Sets the random seed.
+         * 
+         * @param seed The seed
+         * @return This builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+        
+        /**
+         * Sets the number of distinct values per column.
+         * 
+         * @param cardinality Distinct values per column
+         * @return This builder
+         */
+        public Builder cardinality(int cardinality) {
+            this.cardinality = cardinality;
+            return this;
+        }
+        
+        /**
+         * Sets the Zipf exponent of the value distribution; 0 picks values uniformly.
+         * 
+         * @param zipf The exponent
+         * @return This builder
+         */
+        public Builder zipf(double zipf) {
+            this.zipf = zipf;
+            return this;
+        }
+        
+        /**
+         * Sets the fraction of size and duration values that are malformed.
+         * 
+         * @param malformedRate A fraction between 0 and 1
+         * @return This builder
+         */
+        public Builder malformedRate(double malformedRate) {
+            this.malformedRate = malformedRate;
+            return this;
+        }
+        
+        /**
+         * Sets the number of filler columns added to each row.
+         * 
+         * @param width Number of filler columns
+         * @return This builder
+         */
+        public Builder width(int width) {
+            this.width = width;
+            return this;
+        }
+        
+        /**
+         * Sets the unit mix of the size column, e.g. {@code "KB:3,MB:1"} for three KB values per MB value.
+         * 
+         * @param sizeUnits Comma separated unit:weight pairs
+         * @return This builder
+         */
+        public Builder sizeUnits(String sizeUnits) {
+            this.sizeUnits = sizeUnits;
+            return this;
+        }
+        
+        /**
+         * Sets the unit mix of the duration column, e.g. {@code "ms:9,s:1"}.
+         * 
+         * @param durationUnits Comma separated unit:weight pairs
+         * @return This builder
+         */
+        public Builder durationUnits(String durationUnits) {
+            this.durationUnits = durationUnits;
+            return this;
+        }
+        
+        /**
+         * Creates the generator.
+         * 
+         * @return The generator
+         */
+        public WorkloadGenerator build() {
+            if (cardinality <= 0 || width < 0 || zipf < 0 || malformedRate < 0 || malformedRate > 1) {
+                throw new IllegalArgumentException("Invalid workload settings: cardinality=" + cardinality
+                    + " width=" + width + " zipf=" + zipf + " malformedRate=" + malformedRate);
+            }
+            return new WorkloadGenerator(this);
+        }
+    }
+    
+    private WorkloadGenerator(Builder builder) {
+        this.random = new SplittableRandom(builder.seed);
+        this.malformedRate = builder.malformedRate;
+        int cardinality = builder.cardinality;
+        
+        UnitMix sizeMix = UnitMix.parse(builder.sizeUnits);
+        UnitMix durationMix = UnitMix.parse(builder.durationUnits);
+        this.keys = new String[cardinality];
+        this.sizes = new String[cardinality];
+        this.durations = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = "object-" + i;
+            sizes[i] = magnitude() + sizeMix.pick(random);
+            durations[i] = magnitude() + durationMix.pick(random);
+        }
+        
+        this.fillerColumns = new String[builder.width];
+        for (int i = 0; i < fillerColumns.length; i++) {
+            fillerColumns[i] = "c" + i;
+        }
+        this.fillerValues = new String[builder.width == 0 ? 0 : cardinality];
+        for (int i = 0; i < fillerValues.length; i++) {
+            char[] value = new char[8];
+            for (int j = 0; j < value.length; j++) {
+                value[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            fillerValues[i] = new String(value);
+        }
+        
+        this.cdf = new double[cardinality];
+        double total = 0;
+        for (int i = 0; i < cardinality; i++) {
+            total += 1 / Math.pow(i + 1, builder.zipf);
+            cdf[i] = total;
+        }
+        for (int i = 0; i < cardinality; i++) {
+            cdf[i] /= total;
+        }
+    }
+    
+    /**
+     * Creates a builder with the default settings: seed 1, 1000 distinct values,
+     * uniform distribution, no malformed values and no filler columns.
+     * 
+     * @return The builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Fills a row with the next generated record.
+     * 
+     * @param row An empty row
+     */
+    public void fill(Row row) {
+        row.add(KEY, keys[rank()]);
+        row.add(SIZE, maybeMalformed(sizes[rank()]));
+        row.add(DURATION, maybeMalformed(durations[rank()]));
+        for (String column : fillerColumns) {
+            row.add(column, fillerValues[rank()]);
+        }
+    }
+    
+    /**
+     * Generates the next rows.
+     * 
+     * @param count Number of rows
+     * @return The rows
+     */
+    public List<Row> next(int count) {
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            fill(row);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    /**
+     * Refills a batch with the next rows, reusing its rows.
+     * 
+     * @param batch The batch
+     * @param count Number of rows
+     */
+    public void next(RowBatch batch, int count) {
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            fill(batch.next());
+        }
+    }
+    
+    private int rank() {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cdf.length - 1);
+    }
+    
+    private String maybeMalformed(String value) {
+        if (malformedRate > 0 && random.nextDouble() < malformedRate) {
+            return MALFORMED[random.nextInt(MALFORMED.length)];
+        }
+        return value;
+    }
+    
+    /**
+     * A number between 1 and 1000 with up to two decimals.
+     */
+    private String magnitude() {
+        int value = 1 + random.nextInt(999);
+        switch (random.nextInt(3)) {
+            case 0:
+                return Integer.toString(value);
+            case 1:
+                return value + "." + random.nextInt(10);
+            default:
+                return value + "." + (10 + random.nextInt(90));
+        }
+    }
+    
+    /**
+     * A weighted choice of unit suffixes.
+     */
+    private static final class UnitMix {
+        private final String[] units;
+        private final double[] cumulative;
+        
+        private UnitMix(String[] units, double[] cumulative) {
+            this.units = units;
+            this.cumulative = cumulative;
+        }
+        
+        static UnitMix parse(String spec) {
+            String[] parts = spec.split(",");
+            String[] units = new String[parts.length];
+            double[] cumulative = new double[parts.length];
+            double total = 0;
+            for (int i = 0; i < parts.length; i++) {
+                String[] pair = parts[i].trim().split(":");
+                units[i] = pair[0].trim();
+                double weight = pair.length > 1 ? Double.parseDouble(pair[1].trim()) : 1;
+                if (units[i].isEmpty() || !(weight > 0)) {
+                    throw new IllegalArgumentException("Invalid unit mix: " + spec);
+                }
+                total += weight;
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < cumulative.length; i++) {
+                cumulative[i] /= total;
+            }
+            return new UnitMix(units, cumulative);
+        }
+        
+        String pick(SplittableRandom random) {
+            double u = random.nextDouble();
+            for (int i = 0; i < cumulative.length - 1; i++) {
+                if (u < cumulative[i]) {
+                    return units[i];
+                }
+            }
+            return units[units.length - 1];
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package io.cdap.wrangler.benchmark;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.units.UnitParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for WorkloadGenerator.
+ */
+public class WorkloadGeneratorTest {
+    
+    @Test
+    public void testDeterministic() {
+        List<Row> first = WorkloadGenerator.builder().seed(7).width(3).build().next(500);
+        List<Row> second = WorkloadGenerator.builder().seed(7).width(3).build().next(500);
+        List<Row> other = WorkloadGenerator.builder().seed(8).width(3).build().next(500);
+        boolean differs = false;
+        for (int i = 0; i < first.size(); i++) {
+            Assert.assertEquals(6, first.get(i).width());
+            for (int j = 0; j < 6; j++) {
+                Assert.assertEquals(first.get(i).getValue(j), second.get(i).getValue(j));
+            }
+            differs |= !first.get(i).getValue(WorkloadGenerator.SIZE)
+                .equals(other.get(i).getValue(WorkloadGenerator.SIZE));
+        }
+        Assert.assertTrue(differs);
+    }
+    
+    @Test
+    public void testDistribution() {
+        WorkloadGenerator uniform = WorkloadGenerator.builder().cardinality(1000).malformedRate(0.05)
+            .sizeUnits("KB:1").durationUnits("ms:1,s:1").build();
+        int malformed = 0;
+        int seconds = 0;
+        int count = 20000;
+        for (Row row : uniform.next(count)) {
+            String size = (String) row.getValue(WorkloadGenerator.SIZE);
+            String duration = (String) row.getValue(WorkloadGenerator.DURATION);
+            if (Double.isNaN(UnitParser.parse(size, UnitParser.Kind.BYTE_SIZE))) {
+                malformed++;
+            } else {
+                Assert.assertTrue(size, size.endsWith("KB"));
+            }
+            if (!Double.isNaN(UnitParser.parse(duration, UnitParser.Kind.TIME_DURATION))
+                && !duration.endsWith("ms")) {
+                seconds++;
+            }
+        }
+        Assert.assertEquals(0.05, malformed / (double) count, 0.01);
+        Assert.assertEquals(0.5, seconds / (count * 0.95), 0.05);
+        
+        Map<Object, Integer> keys = new HashMap<>();
+        for (Row row : WorkloadGenerator.builder().cardinality(1000).zipf(1.2).build().next(count)) {
+            keys.merge(row.getValue(WorkloadGenerator.KEY), 1, Integer::sum);
+        }
+        // With a skewed distribution the most common key is far above the uniform 1/1000
+        Assert.assertTrue(keys.get("object-0") > count / 10);
+    }
+}
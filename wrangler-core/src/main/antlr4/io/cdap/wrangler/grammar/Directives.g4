@@ -1,7 +1,7 @@
 grammar Directives;
 
-// Define a rule for a list of directives
-directives : directive (EOL directive)* EOF ;
+// Define a rule for a list of directives, allowing leading and trailing line breaks
+directives : EOL? directive (EOL directive)* EOL? EOF ;
 
 // A directive is a name followed by optional arguments
 directive : name=IDENTIFIER (WS+ arguments)? ;
@@ -9,7 +9,7 @@ directive : name=IDENTIFIER (WS+ arguments)? ;
 // Arguments are a list of one or more values
 arguments : value (WS+ value)* ;
 
-// A value can be a string, identifier, column reference, byte size, time duration, or property
+// A value can be a string, identifier, column reference, byte size, time duration, property, or comparison
 value : STRING_LITERAL                                       # String
       | COLUMN_NAME                                          # Column
       | IDENTIFIER                                           # Identifier
@@ -18,17 +18,18 @@ value : STRING_LITERAL                                       # String
       | BYTE_SIZE                                            # ByteSize
       | TIME_DURATION                                        # TimeDuration
       | PROPERTY                                             # Property
+      | COMPARISON                                           # Comparison
       ;
 
 // Lexer Rules
-DIGIT : [0-9] ;
+fragment DIGIT : [0-9] ;
 WS : [ \t]+ ;
 EOL : [\r\n]+ ;
 
 PROPERTY : (IDENTIFIER '=' (IDENTIFIER | STRING_LITERAL)) ;
 
-// Identifiers start with a letter or underscore
-IDENTIFIER : [a-zA-Z_] [a-zA-Z0-9_]* ;
+// Identifiers start with a letter or underscore and may contain hyphens (e.g., aggregate-stats)
+IDENTIFIER : [a-zA-Z_] [a-zA-Z0-9_\-]* ;
 
 // Column names are prefixed with a colon
 COLUMN_NAME : ':' [a-zA-Z_] [a-zA-Z0-9_]* ;
@@ -48,5 +49,8 @@ BYTE_SIZE : (INTEGER | DECIMAL) WS? ('B'|'KB'|'MB'|'GB'|'TB'|'PB') ;
 // Time duration literals (e.g., 100ms, 5s, 1.5h)
 TIME_DURATION : (INTEGER | DECIMAL) WS? ('ns'|'ms'|'s'|'m'|'h'|'d') ;
 
+// Comparison operators used by filter directives (e.g., filter-size :size > 5MB)
+COMPARISON : '>=' | '<=' | '==' | '!=' | '>' | '<' ;
+
 // Skip comments
 COMMENT : '#' ~[\r\n]* -> skip ;
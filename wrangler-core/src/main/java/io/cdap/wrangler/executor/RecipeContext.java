@@ -0,0 +1,34 @@
+package io.cdap.wrangler.executor;
+
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
+
+/**
+ * An execution context with a memory budget of its own, for running a recipe
+ * under admission control.
+ */
+public class RecipeContext implements ExecutorContext {
+    private final Environment environment;
+    private final MemoryBudget budget;
+    
+    /**
+     * Creates a new RecipeContext.
+     * 
+     * @param environment The execution environment
+     * @param budget The memory budget of the recipe
+     */
+    public RecipeContext(Environment environment, MemoryBudget budget) {
+        this.environment = environment;
+        this.budget = budget;
+    }
+    
+    @Override
+    public Environment getEnvironment() {
+        return environment;
+    }
+    
+    @Override
+    public MemoryBudget getMemoryBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,114 @@
+package io.cdap.wrangler.executor;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.jfr.DirectiveExecutionEvent;
+import io.cdap.wrangler.parser.Recipe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the directives of a recipe over batches of rows.
+ */
+public class RecipeExecutor {
+    private static final int SAMPLE_ROWS = 16;
+    
+    private final List<Directive> directives;
+    private final String[] names;
+    private final ExecutorContext context;
+    
+    /**
+     * Creates a new RecipeExecutor.
+     * 
+     * @param directives The directives, in recipe order; a parsed {@link Recipe}
+     *        also names them in Flight Recorder events
+     * @param context The execution context
+     */
+    public RecipeExecutor(List<Directive> directives, ExecutorContext context) {
+        this.directives = new ArrayList<>(directives);
+        this.names = new String[directives.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = Recipe.nameOf(directives, i);
+        }
+        this.context = context;
+    }
+    
+    /**
+     * Runs every directive over a batch, each on the output of the previous one.
+     * Unless the memory budget of the context is unlimited, the estimated size of
+     * the batch is reserved from it while the batch is processed. Each directive run is recorded as a
+     * {@link DirectiveExecutionEvent} when Flight Recorder is running.
+     * 
+     * @param rows The input rows
+     * @return The output rows
+     * @throws DirectiveExecutionException If a directive fails or the batch does not fit in the budget
+     */
+    public List<Row> execute(List<Row> rows) throws DirectiveExecutionException {
+        MemoryBudget budget = context.getMemoryBudget();
+        long bytes = budget.isUnlimited() ? 0 : estimateBytes(rows);
+        budget.reserve(bytes);
+        try {
+            List<Row> result = rows;
+            for (int i = 0; i < names.length; i++) {
+                DirectiveExecutionEvent event = new DirectiveExecutionEvent();
+                if (!event.isEnabled()) {
+                    result = directives.get(i).execute(result, context);
+                    continue;
+                }
+                event.begin();
+                List<Row> input = result;
+                result = null;
+                try {
+                    result = directives.get(i).execute(input, context);
+                } finally {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.directive = names[i];
+                        event.rowsIn = input.size();
+                        event.rowsOut = result == null ? -1 : result.size();
+                        event.commit();
+                    }
+                }
+            }
+            return result;
+        } finally {
+            budget.release(bytes);
+        }
+    }
+    
+    /**
+     * Estimates the heap size of a batch from up to {@value #SAMPLE_ROWS} rows
+     * spread evenly over it, so that the cost does not grow with the batch.
+     * 
+     * @param rows The rows
+     * @return The estimated size in bytes
+     */
+    public static long estimateBytes(List<Row> rows) {
+        int size = rows.size();
+        long bytes = 16 + 4L * size;
+        if (size == 0) {
+            return bytes;
+        }
+        int step = Math.max(1, size / SAMPLE_ROWS);
+        long sampled = 0;
+        int count = 0;
+        for (int i = 0; i < size; i += step) {
+            sampled += rows.get(i).estimateBytes();
+            count++;
+        }
+        return bytes + sampled * size / count;
+    }
+    
+    /**
+     * Gets the directives of the recipe.
+     * 
+     * @return The directives
+     */
+    public List<Directive> getDirectives() {
+        return directives;
+    }
+}
@@ -0,0 +1,48 @@
+package io.cdap.wrangler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded with the hits and misses of a cache over one unit of work: a batch
+ * for the {@code unit-formatter} cache, a recipe for the {@code directive-binders}
+ * cache of the registry.
+ */
+@Name("io.cdap.wrangler.CacheStatistics")
+@Label("Cache Statistics")
+@Category("Wrangler")
+@Description("Hits and misses of a Wrangler cache")
+@StackTrace(false)
+public final class CacheStatisticsEvent extends jdk.jfr.Event {
+    @Label("Cache")
+    public String cache;
+    
+    @Label("Hits")
+    public long hits;
+    
+    @Label("Misses")
+    public long misses;
+    
+    /**
+     * Records the statistics if the event is enabled and anything was looked up.
+     * 
+     * @param cache The cache name
+     * @param hits Lookups answered from the cache
+     * @param misses Lookups that were not
+     */
+    public static void record(String cache, long hits, long misses) {
+        if (hits + misses == 0) {
+            return;
+        }
+        CacheStatisticsEvent event = new CacheStatisticsEvent();
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.hits = hits;
+            event.misses = misses;
+            event.commit();
+        }
+    }
+}
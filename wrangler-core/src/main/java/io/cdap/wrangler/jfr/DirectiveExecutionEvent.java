@@ -0,0 +1,29 @@
+package io.cdap.wrangler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every batch a directive processes in
+ * {@link io.cdap.wrangler.executor.RecipeExecutor}.
+ */
+@Name("io.cdap.wrangler.DirectiveExecution")
+@Label("Directive Execution")
+@Category("Wrangler")
+@Description("Execution of one directive over one batch of rows")
+@StackTrace(false)
+public final class DirectiveExecutionEvent extends jdk.jfr.Event {
+    @Label("Directive")
+    @Description("The directive name, as used in recipes")
+    public String directive;
+    
+    @Label("Rows In")
+    public int rowsIn;
+    
+    @Label("Rows Out")
+    @Description("Rows returned by the directive, or -1 if it failed")
+    public int rowsOut;
+}
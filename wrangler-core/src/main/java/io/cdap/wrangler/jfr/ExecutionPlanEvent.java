@@ -0,0 +1,60 @@
+package io.cdap.wrangler.jfr;
+
+import io.cdap.wrangler.planner.ExecutionPlan;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a batch planner changes the batch size or strategy of a
+ * directive, with the sampled statistics that led to the decision.
+ */
+@Name("io.cdap.wrangler.ExecutionPlan")
+@Label("Execution Plan")
+@Category("Wrangler")
+@Description("A change of batch size or execution strategy")
+@StackTrace(false)
+public final class ExecutionPlanEvent extends jdk.jfr.Event {
+    @Label("Directive")
+    public String directive;
+    
+    @Label("Strategy")
+    public String strategy;
+    
+    @Label("Batch Size")
+    public int batchSize;
+    
+    @Label("Nanoseconds per Cell")
+    public double nanosPerCell;
+    
+    @Label("Distinct Ratio")
+    public double distinctRatio;
+    
+    @Label("Row Width")
+    public double rowWidth;
+    
+    @Label("Reason")
+    public String reason;
+    
+    /**
+     * Records a plan if the event is enabled.
+     * 
+     * @param directive The directive the plan is for
+     * @param plan The new plan
+     */
+    public static void record(String directive, ExecutionPlan plan) {
+        ExecutionPlanEvent event = new ExecutionPlanEvent();
+        if (event.shouldCommit()) {
+            event.directive = directive;
+            event.strategy = plan.getStrategy();
+            event.batchSize = plan.getBatchSize();
+            event.nanosPerCell = plan.getNanosPerCell();
+            event.distinctRatio = plan.getDistinctRatio();
+            event.rowWidth = plan.getRowWidth();
+            event.reason = plan.getReason();
+            event.commit();
+        }
+    }
+}
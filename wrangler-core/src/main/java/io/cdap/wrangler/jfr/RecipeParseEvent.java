@@ -0,0 +1,32 @@
+package io.cdap.wrangler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for every recipe parsed by {@link io.cdap.wrangler.parser.RecipeParser},
+ * including recipes that fail to parse.
+ */
+@Name("io.cdap.wrangler.RecipeParse")
+@Label("Recipe Parse")
+@Category("Wrangler")
+@Description("Parsing of a recipe into directives")
+@StackTrace(false)
+public final class RecipeParseEvent extends jdk.jfr.Event {
+    @Label("Recipe Hash")
+    @Description("64-bit hash of the recipe text, to tell recipes apart without recording them")
+    public long recipeHash;
+    
+    @Label("Lines")
+    public int lines;
+    
+    @Label("Directives")
+    public int directives;
+    
+    @Label("Error")
+    @Description("The parse error, if the recipe was rejected")
+    public String error;
+}
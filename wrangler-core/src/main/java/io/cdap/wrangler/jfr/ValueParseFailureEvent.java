@@ -0,0 +1,48 @@
+package io.cdap.wrangler.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a directive cannot parse a byte size or time duration value.
+ * Grouping the events by column gives the failure counts per column.
+ */
+@Name("io.cdap.wrangler.ValueParseFailure")
+@Label("Value Parse Failure")
+@Category("Wrangler")
+@Description("A column value that is not a valid byte size or time duration")
+@StackTrace(false)
+public final class ValueParseFailureEvent extends jdk.jfr.Event {
+    private static final int MAX_VALUE_LENGTH = 64;
+    
+    @Label("Directive")
+    public String directive;
+    
+    @Label("Column")
+    public String column;
+    
+    @Label("Value")
+    @Description("The malformed value, truncated to 64 characters")
+    public String value;
+    
+    /**
+     * Records a failure if the event is enabled.
+     * 
+     * @param directive The directive name
+     * @param column The column holding the value
+     * @param value The malformed value
+     */
+    public static void record(String directive, String column, Object value) {
+        ValueParseFailureEvent event = new ValueParseFailureEvent();
+        if (event.shouldCommit()) {
+            String text = String.valueOf(value);
+            event.directive = directive;
+            event.column = column;
+            event.value = text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) : text;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.ColumnName;
+import io.cdap.wrangler.api.parser.Numeric;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.api.parser.Text;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import io.cdap.wrangler.api.parser.Token;
+import io.cdap.wrangler.grammar.DirectivesParser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Converts the arguments of a parsed directive into typed {@link Token}s.
+ */
+public final class DirectiveArguments {
+    
+    private DirectiveArguments() {
+    }
+    
+    /**
+     * Converts the arguments of a directive node.
+     * 
+     * @param directive The parsed directive
+     * @return The argument tokens, in recipe order
+     * @throws DirectiveParseException If a literal is malformed
+     */
+    public static List<Token> of(DirectivesParser.DirectiveContext directive) throws DirectiveParseException {
+        DirectivesParser.ArgumentsContext arguments = directive.arguments();
+        if (arguments == null) {
+            return Collections.emptyList();
+        }
+        List<Token> tokens = new ArrayList<>(arguments.value().size());
+        for (DirectivesParser.ValueContext value : arguments.value()) {
+            tokens.add(toToken(value));
+        }
+        return tokens;
+    }
+    
+    private static Token toToken(DirectivesParser.ValueContext value) throws DirectiveParseException {
+        String text = value.getText();
+        try {
+            if (value instanceof DirectivesParser.ColumnContext) {
+                return new ColumnName(text.substring(1));
+            } else if (value instanceof DirectivesParser.IntegerContext) {
+                long number = Long.parseLong(text);
+                return new Numeric(number == (int) number ? (Number) (int) number : (Number) number);
+            } else if (value instanceof DirectivesParser.DecimalContext) {
+                return new Numeric(Double.parseDouble(text));
+            } else if (value instanceof DirectivesParser.ByteSizeContext) {
+                return new ByteSize(text);
+            } else if (value instanceof DirectivesParser.TimeDurationContext) {
+                return new TimeDuration(text);
+            } else if (value instanceof DirectivesParser.StringContext) {
+                return new Text(unquote(text));
+            }
+            return new Text(text);
+        } catch (SyntaxError | NumberFormatException e) {
+            throw new DirectiveParseException("Invalid argument '" + text + "': " + e.getMessage());
+        }
+    }
+    
+    private static String unquote(String literal) {
+        char quote = literal.charAt(0);
+        return literal.substring(1, literal.length() - 1).replace("\\" + quote, String.valueOf(quote));
+    }
+}
@@ -0,0 +1,64 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.Directive;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The directives of a parsed recipe, each with the name it was bound under in the
+ * registry, so that the name is known without inspecting the directive class.
+ */
+public final class Recipe extends AbstractList<Directive> implements RandomAccess {
+    private final List<Directive> directives;
+    private final List<String> names;
+    
+    Recipe(List<Directive> directives, List<String> names) {
+        this.directives = directives;
+        this.names = names;
+    }
+    
+    @Override
+    public Directive get(int index) {
+        return directives.get(index);
+    }
+    
+    @Override
+    public int size() {
+        return directives.size();
+    }
+    
+    /**
+     * Gets the name of a directive, as used in the recipe.
+     * 
+     * @param index The index of the directive
+     * @return The directive name
+     */
+    public String getName(int index) {
+        return names.get(index);
+    }
+    
+    /**
+     * Gets a range of the directives, keeping their names.
+     */
+    @Override
+    public Recipe subList(int fromIndex, int toIndex) {
+        return new Recipe(directives.subList(fromIndex, toIndex), names.subList(fromIndex, toIndex));
+    }
+    
+    /**
+     * Gets the name of a directive in a list. Directives that were not parsed
+     * from a recipe are named after their class.
+     * 
+     * @param directives The directives
+     * @param index The index of the directive
+     * @return The directive name
+     */
+    public static String nameOf(List<Directive> directives, int index) {
+        if (directives instanceof Recipe) {
+            return ((Recipe) directives).getName(index);
+        }
+        return directives.get(index).getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,119 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.grammar.DirectivesLexer;
+import io.cdap.wrangler.grammar.DirectivesParser;
+import io.cdap.wrangler.jfr.CacheStatisticsEvent;
+import io.cdap.wrangler.jfr.RecipeParseEvent;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.sketch.Hashing;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a recipe into directives.
+ */
+public class RecipeParser {
+    private final DirectiveRegistry registry;
+    
+    /**
+     * Creates a new RecipeParser.
+     * 
+     * @param registry The registry to look up directives in
+     */
+    public RecipeParser(DirectiveRegistry registry) {
+        this.registry = registry;
+    }
+    
+    /**
+     * Parses a recipe, one directive per line. Each call is recorded as a
+     * {@link RecipeParseEvent} when Flight Recorder is running.
+     * 
+     * @param recipe The recipe text
+     * @return The directives, in recipe order, with their names
+     * @throws DirectiveParseException If the recipe is malformed or references an unknown directive
+     */
+    public Recipe parse(String recipe) throws DirectiveParseException {
+        RecipeParseEvent event = new RecipeParseEvent();
+        event.begin();
+        Recipe directives = null;
+        String error = null;
+        try {
+            directives = doParse(recipe);
+            return directives;
+        } catch (DirectiveParseException | RuntimeException e) {
+            error = e.getMessage();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.recipeHash = Hashing.hash64(recipe);
+                event.lines = countLines(recipe);
+                event.directives = directives == null ? 0 : directives.size();
+                event.error = error;
+                event.commit();
+            }
+        }
+    }
+    
+    private Recipe doParse(String recipe) throws DirectiveParseException {
+        SyntaxErrorListener errors = new SyntaxErrorListener();
+        DirectivesLexer lexer = new DirectivesLexer(CharStreams.fromString(recipe));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errors);
+        DirectivesParser parser = new DirectivesParser(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.addErrorListener(errors);
+        
+        DirectivesParser.DirectivesContext tree = parser.directives();
+        if (errors.message != null) {
+            throw new DirectiveParseException(errors.message);
+        }
+        
+        List<Directive> directives = new ArrayList<>(tree.directive().size());
+        List<String> names = new ArrayList<>(tree.directive().size());
+        long hits = 0;
+        for (DirectivesParser.DirectiveContext directive : tree.directive()) {
+            String name = directive.name.getText();
+            if (registry.isLoaded(name)) {
+                hits++;
+            }
+            directives.add(registry.create(name, DirectiveArguments.of(directive)));
+            names.add(name);
+        }
+        CacheStatisticsEvent.record("directive-binders", hits, directives.size() - hits);
+        return new Recipe(directives, names);
+    }
+    
+    private static int countLines(String recipe) {
+        int lines = recipe.isEmpty() ? 0 : 1;
+        for (int i = 0; i < recipe.length() - 1; i++) {
+            if (recipe.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+    
+    /**
+     * Keeps the first syntax error instead of printing it to the console.
+     */
+    private static final class SyntaxErrorListener extends BaseErrorListener {
+        private String message;
+        
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            if (message == null) {
+                message = "Syntax error at line " + line + ":" + charPositionInLine + ": " + msg;
+            }
+        }
+    }
+}
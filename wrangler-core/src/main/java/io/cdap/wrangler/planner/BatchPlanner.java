@@ -0,0 +1,437 @@
+package io.cdap.wrangler.planner;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.jfr.ExecutionPlanEvent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Chooses the batch size and execution strategy of a directive that parses size
+ * or duration columns, from statistics of its batches.
+ * 
+ * The directive reports how long each batch took with {@link #record(ExecutionPlan, int, long)}.
+ * The planner estimates the cost per row as the lowest seen since the last sample,
+ * since pauses and other load only ever make a batch slower. It also counts the
+ * distinct values, columns and estimated bytes of the first {@link #SAMPLE} rows
+ * of a batch. From these it derives:
+ * <ul>
+ *   <li>the batch size, so that a batch takes about the target latency and stays
+ *   within the target memory;</li>
+ *   <li>the parallelism, when a batch costs enough to be worth splitting over
+ *   several threads;</li>
+ *   <li>whether to cache parsed values by their string. When values repeat and are
+ *   not dictionary encoded already, the planner runs a few trial batches with the
+ *   other setting and keeps the cache only if it makes batches measurably faster;
+ *   whether it does depends on whether the rows share their strings. Each trial
+ *   that keeps the setting doubles the number of samples until the next one, as
+ *   trial batches run with the slower setting.</li>
+ * </ul>
+ * It samples the first batch, every {@code resampleInterval} batches after that,
+ * and whenever the width of the rows changes, so that the plan follows the data.
+ * The batch size only changes when the ideal size moves by a factor of two, so
+ * that noise in the timings does not make it flap. Every change of decision is
+ * recorded as an {@link ExecutionPlanEvent} and passed to the listener, if any.
+ * Trials are not recorded, only the decisions they lead to.
+ * 
+ * Planners are thread-safe.
+ */
+public final class BatchPlanner {
+    /**
+     * The number of rows sampled from a batch.
+     */
+    public static final int SAMPLE = 64;
+    
+    // Values repeating at least this much are worth caching
+    private static final double CACHE_DISTINCT_RATIO = 0.25;
+    // Splitting a batch into chunks smaller than this costs more than it saves
+    private static final int MIN_CHUNK = 256;
+    // Batches run with the other cache setting before deciding on it
+    private static final int TRIAL_BATCHES = 4;
+    // How much faster the other setting must be to switch to it
+    private static final double MARGIN = 0.05;
+    // The most samples between two trials, once trials keep confirming the setting
+    private static final int MAX_TRIAL_INTERVAL = 64;
+    
+    private final String directive;
+    private final String[] columns;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long targetNanos;
+    private final long targetBytes;
+    private final int parallelism;
+    private final long chunkNanos;
+    private final int resampleInterval;
+    private final Consumer<ExecutionPlan> listener;
+    private final AtomicInteger batches = new AtomicInteger();
+    private volatile ExecutionPlan plan;
+    private volatile ExecutionPlan trial;
+    private volatile int width = -1;
+    private volatile double windowNanos = Double.NaN;
+    private double plainNanos = Double.NaN;
+    private double cachedNanos = Double.NaN;
+    private boolean cacheable;
+    private int trialBatches;
+    private double trialNanos;
+    private int trialInterval = 1;
+    private int samplesSinceTrial;
+    
+    /**
+     * Builder for {@link BatchPlanner}.
+     */
+    public static final class Builder {
+        private final String directive;
+        private final List<String> columns = new ArrayList<>();
+        private int minBatchSize = 256;
+        private int maxBatchSize = 65536;
+        private long targetNanos = TimeUnit.MILLISECONDS.toNanos(2);
+        private long targetBytes = 8L * 1024 * 1024;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long chunkNanos = TimeUnit.MICROSECONDS.toNanos(250);
+        private int resampleInterval = 64;
+        private Consumer<ExecutionPlan> listener;
+        
+        private Builder(String directive) {
+            this.directive = directive;
+        }
+        
+        /**
+         * Adds a column the directive parses.
+         * 
+         * @param column The column name
+         * @return This builder
+         */
+        public Builder column(String column) {
+            columns.add(column);
+            return this;
+        }
+        
+        /**
+         * Sets the range of batch sizes to choose from.
+         * 
+         * @param min The smallest batch size
+         * @param max The largest batch size
+         * @return This builder
+         */
+        public Builder batchSize(int min, int max) {
+            this.minBatchSize = min;
+            this.maxBatchSize = max;
+            return this;
+        }
+        
+        /**
+         * Sets how long a batch should take.
+         * 
+         * @param latency The target time per batch
+         * @param unit The unit of the time
+         * @return This builder
+         */
+        public Builder targetLatency(long latency, TimeUnit unit) {
+            this.targetNanos = unit.toNanos(latency);
+            return this;
+        }
+        
+        /**
+         * Sets how much memory the rows of a batch should take, as estimated by
+         * {@link Row#estimateBytes()}.
+         * 
+         * @param bytes The target bytes per batch
+         * @return This builder
+         */
+        public Builder targetBytes(long bytes) {
+            this.targetBytes = bytes;
+            return this;
+        }
+        
+        /**
+         * Sets the most threads a batch may be split over. Defaults to the number
+         * of processors.
+         * 
+         * @param parallelism The maximum parallelism, 1 to always run sequentially
+         * @return This builder
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+        
+        /**
+         * Sets the least work a thread should get when a batch is split.
+         * 
+         * @param time The minimum time per chunk
+         * @param unit The unit of the time
+         * @return This builder
+         */
+        public Builder minChunkTime(long time, TimeUnit unit) {
+            this.chunkNanos = unit.toNanos(time);
+            return this;
+        }
+        
+        /**
+         * Sets how many batches to run on a plan before sampling again.
+         * 
+         * @param batches Batches between samples
+         * @return This builder
+         */
+        public Builder resampleInterval(int batches) {
+            this.resampleInterval = batches;
+            return this;
+        }
+        
+        /**
+         * Sets a listener for the decisions of the planner.
+         * 
+         * @param listener Called with every plan that changes a decision
+         * @return This builder
+         */
+        public Builder listener(Consumer<ExecutionPlan> listener) {
+            this.listener = listener;
+            return this;
+        }
+        
+        /**
+         * Creates the planner.
+         * 
+         * @return The planner
+         */
+        public BatchPlanner build() {
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("A planner needs at least one column");
+            }
+            if (minBatchSize <= 0 || minBatchSize > maxBatchSize) {
+                throw new IllegalArgumentException(
+                    "Invalid batch size range: " + minBatchSize + " to " + maxBatchSize);
+            }
+            if (parallelism <= 0 || resampleInterval <= 0 || targetNanos <= 0 || targetBytes <= 0) {
+                throw new IllegalArgumentException(
+                    "Parallelism, resample interval and targets must be positive");
+            }
+            return new BatchPlanner(this);
+        }
+    }
+    
+    private BatchPlanner(Builder builder) {
+        this.directive = builder.directive;
+        this.columns = builder.columns.toArray(new String[0]);
+        this.minBatchSize = builder.minBatchSize;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.targetNanos = builder.targetNanos;
+        this.targetBytes = builder.targetBytes;
+        this.parallelism = builder.parallelism;
+        this.chunkNanos = builder.chunkNanos;
+        this.resampleInterval = builder.resampleInterval;
+        this.listener = builder.listener;
+        this.plan = new ExecutionPlan(clamp(1024), 1, false, Double.NaN, Double.NaN, Double.NaN,
+                                      "not sampled yet");
+    }
+    
+    /**
+     * Creates a builder.
+     * 
+     * @param directive The name of the directive, used when recording decisions
+     * @return The builder
+     */
+    public static Builder builder(String directive) {
+        return new Builder(directive);
+    }
+    
+    /**
+     * Gets the plan for a batch, sampling it first if it is time to.
+     * 
+     * @param rows The batch
+     * @return The plan
+     */
+    public ExecutionPlan plan(List<Row> rows) {
+        ExecutionPlan current = plan;
+        if (rows.isEmpty()) {
+            return current;
+        }
+        int rowWidth = rows.get(0).width();
+        if (trial == null && rowWidth == width && batches.incrementAndGet() < resampleInterval) {
+            return current;
+        }
+        return replan(rows, rowWidth);
+    }
+    
+    /**
+     * Records how long a batch took to run.
+     * 
+     * @param plan The plan the batch ran with
+     * @param rows The number of rows in the batch
+     * @param nanos The elapsed time
+     */
+    public void record(ExecutionPlan plan, int rows, long nanos) {
+        if (rows <= 0) {
+            return;
+        }
+        double latest = (double) nanos * plan.getParallelism() / rows;
+        if (plan == trial) {
+            synchronized (this) {
+                trialBatches++;
+                trialNanos = min(trialNanos, latest);
+            }
+        } else if (plan == this.plan) {
+            windowNanos = min(windowNanos, latest);
+        }
+    }
+    
+    /**
+     * Gets the current plan.
+     * 
+     * @return The plan
+     */
+    public ExecutionPlan getPlan() {
+        return plan;
+    }
+    
+    private synchronized ExecutionPlan replan(List<Row> rows, int rowWidth) {
+        ExecutionPlan current = plan;
+        if (trial != null) {
+            if (trialBatches < TRIAL_BATCHES) {
+                return trial;
+            }
+            ExecutionPlan finished = trial;
+            trial = null;
+            batches.set(0);
+            double tried = trialNanos;
+            double kept = min(cost(current.isCached()), windowNanos);
+            setCost(finished.isCached(), tried);
+            if (tried < kept * (1 - MARGIN)) {
+                setCost(current.isCached(), kept);
+                windowNanos = Double.NaN;
+                publish(current.withCache(finished.isCached(), String.format(
+                    Locale.ROOT, "%.1f ns/row %s the parse cache, %.1f ns/row %s",
+                    tried, finished.isCached() ? "with" : "without", kept,
+                    finished.isCached() ? "without" : "with")));
+                trialInterval = 1;
+            } else {
+                trialInterval = Math.min(MAX_TRIAL_INTERVAL, trialInterval * 2);
+            }
+            return plan;
+        }
+        
+        int previous = width;
+        String reason;
+        if (previous < 0) {
+            reason = "first batch";
+        } else if (rowWidth != previous) {
+            reason = "row width changed from " + previous + " to " + rowWidth;
+            trialInterval = 1;
+        } else if (batches.get() >= resampleInterval) {
+            reason = "resampled after " + resampleInterval + " batches";
+        } else {
+            return current;
+        }
+        batches.set(0);
+        width = rowWidth;
+        if (!Double.isNaN(windowNanos)) {
+            setCost(current.isCached(), windowNanos);
+            windowNanos = Double.NaN;
+        }
+        ExecutionPlan next = sample(rows, current, reason);
+        publish(next);
+        if (cacheable && !Double.isNaN(cost(next.isCached())) && ++samplesSinceTrial >= trialInterval) {
+            samplesSinceTrial = 0;
+            trial = next.withCache(!next.isCached(), "trial");
+            trialBatches = 0;
+            trialNanos = Double.NaN;
+            return trial;
+        }
+        return next;
+    }
+    
+    private void publish(ExecutionPlan next) {
+        ExecutionPlan current = plan;
+        plan = next;
+        if (!next.decides(current)) {
+            ExecutionPlanEvent.record(directive, next);
+            if (listener != null) {
+                listener.accept(next);
+            }
+        }
+    }
+    
+    private double cost(boolean cached) {
+        return cached ? cachedNanos : plainNanos;
+    }
+    
+    private void setCost(boolean cached, double nanos) {
+        if (cached) {
+            cachedNanos = nanos;
+        } else {
+            plainNanos = nanos;
+        }
+    }
+    
+    private static double min(double current, double latest) {
+        if (Double.isNaN(current) || Double.isNaN(latest)) {
+            return Double.isNaN(current) ? latest : current;
+        }
+        return Math.min(current, latest);
+    }
+    
+    private ExecutionPlan sample(List<Row> rows, ExecutionPlan current, String reason) {
+        int count = Math.min(SAMPLE, rows.size());
+        long cells = 0;
+        long encoded = 0;
+        long distinct = 0;
+        long columnCount = 0;
+        long bytes = 0;
+        for (String column : columns) {
+            Set<Object> values = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                Row row = rows.get(i);
+                int index = row.find(column);
+                if (index >= 0 && row.getValue(index) != null) {
+                    cells++;
+                    values.add(row.getValue(index));
+                    if (row.getCode(index) != Dictionary.NONE) {
+                        encoded++;
+                    }
+                }
+            }
+            distinct += values.size();
+        }
+        for (int i = 0; i < count; i++) {
+            columnCount += rows.get(i).width();
+            bytes += rows.get(i).estimateBytes();
+        }
+        double distinctRatio = cells == 0 ? 1 : (double) distinct / cells;
+        // Encoded values are already parsed once per code
+        cacheable = distinctRatio <= CACHE_DISTINCT_RATIO && encoded * 2 < cells;
+        boolean cached = cacheable && current.isCached();
+        
+        double rowNanos = cost(cached);
+        double bytesPerRow = Math.max(1, (double) bytes / count);
+        double ideal = targetBytes / bytesPerRow;
+        if (!Double.isNaN(rowNanos)) {
+            ideal = Math.min(ideal, targetNanos / Math.max(1, rowNanos));
+        }
+        int batchSize = current.getBatchSize();
+        if (ideal < batchSize / 2.0 || ideal >= batchSize * 2.0) {
+            batchSize = clamp((long) ideal);
+        }
+        int threads = 1;
+        if (!Double.isNaN(rowNanos)) {
+            long chunks = Math.min((long) (rowNanos * batchSize / chunkNanos), batchSize / MIN_CHUNK);
+            threads = (int) Math.max(1, Math.min(parallelism, chunks));
+        }
+        return new ExecutionPlan(batchSize, threads, cached, rowNanos / columns.length, distinctRatio,
+                                 (double) columnCount / count, reason);
+    }
+    
+    /**
+     * Rounds a batch size down to a power of two within the configured range.
+     */
+    private int clamp(long size) {
+        long bounded = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+        return (int) Math.max(minBatchSize, Long.highestOneBit(bounded));
+    }
+}
@@ -0,0 +1,131 @@
+package io.cdap.wrangler.planner;
+
+import java.util.Locale;
+
+/**
+ * How a directive runs its batches, as chosen by a {@link BatchPlanner} from the
+ * statistics of a sample of the input.
+ * 
+ * Plans are immutable. A planner replaces its plan when the sampled statistics
+ * lead to a different decision; {@link #getReason()} says why.
+ */
+public final class ExecutionPlan {
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean cached;
+    private final double nanosPerCell;
+    private final double distinctRatio;
+    private final double rowWidth;
+    private final String reason;
+    
+    ExecutionPlan(int batchSize, int parallelism, boolean cached, double nanosPerCell, double distinctRatio,
+                  double rowWidth, String reason) {
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.cached = cached;
+        this.nanosPerCell = nanosPerCell;
+        this.distinctRatio = distinctRatio;
+        this.rowWidth = rowWidth;
+        this.reason = reason;
+    }
+    
+    /**
+     * Gets the number of rows to put in a batch.
+     * 
+     * @return The recommended batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * Gets the number of threads to split a batch over.
+     * 
+     * @return The parallelism, 1 to run sequentially
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    /**
+     * Tells whether to remember parsed values by their string within a batch.
+     * 
+     * @return Whether the parse cache is used
+     */
+    public boolean isCached() {
+        return cached;
+    }
+    
+    /**
+     * Gets the average cost of one parsed value, NaN before any batch was timed.
+     * 
+     * @return Nanoseconds per cell
+     */
+    public double getNanosPerCell() {
+        return nanosPerCell;
+    }
+    
+    /**
+     * Gets the share of distinct values among the sampled cells.
+     * 
+     * @return The distinct ratio, between 0 and 1
+     */
+    public double getDistinctRatio() {
+        return distinctRatio;
+    }
+    
+    /**
+     * Gets the average number of columns of the sampled rows.
+     * 
+     * @return The row width
+     */
+    public double getRowWidth() {
+        return rowWidth;
+    }
+    
+    /**
+     * Gets the reason the plan was made.
+     * 
+     * @return The reason
+     */
+    public String getReason() {
+        return reason;
+    }
+    
+    /**
+     * Gets the strategy in a short form, e.g. {@code parallel(4)+cache}.
+     * 
+     * @return The strategy
+     */
+    public String getStrategy() {
+        return (parallelism > 1 ? "parallel(" + parallelism + ")" : "sequential") + (cached ? "+cache" : "");
+    }
+    
+    /**
+     * Tells whether this plan makes the same decisions as another.
+     * 
+     * @param other The other plan
+     * @return Whether batch size and strategy are the same
+     */
+    boolean decides(ExecutionPlan other) {
+        return other != null && batchSize == other.batchSize && parallelism == other.parallelism
+            && cached == other.cached;
+    }
+    
+    /**
+     * Copies this plan with another cache setting.
+     * 
+     * @param cached Whether the parse cache is used
+     * @param reason The reason for the change
+     * @return The new plan
+     */
+    ExecutionPlan withCache(boolean cached, String reason) {
+        return new ExecutionPlan(batchSize, parallelism, cached, nanosPerCell, distinctRatio, rowWidth, reason);
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s, batch %d (%.1f ns/cell, %.2f distinct, %.1f columns): %s",
+                             getStrategy(), batchSize, nanosPerCell, distinctRatio, rowWidth, reason);
+    }
+}
@@ -0,0 +1,136 @@
+package io.cdap.wrangler.registry;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.parser.DirectiveBinder;
+import io.cdap.wrangler.api.parser.Token;
+import io.cdap.wrangler.api.processor.DirectiveBindingProcessor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the directives available on the classpath.
+ * 
+ * The registry is built from the directive indexes generated at build time, so
+ * creating it only reads a few small resources. A directive's classes are loaded
+ * the first time a recipe references it, and its binder is cached from then on.
+ */
+public final class DirectiveRegistry {
+    private final ClassLoader classLoader;
+    private final Map<String, String> binderClasses;
+    private final Map<String, DirectiveBinder<?>> binders;
+    
+    private DirectiveRegistry(ClassLoader classLoader, Map<String, String> binderClasses) {
+        this.classLoader = classLoader;
+        this.binderClasses = binderClasses;
+        this.binders = new ConcurrentHashMap<>();
+    }
+    
+    /**
+     * Creates a registry from the directive indexes visible to the class loader.
+     * 
+     * @param classLoader The class loader to read indexes from and load directives with
+     * @return The registry
+     * @throws IOException If an index cannot be read or two indexes bind the same name differently
+     */
+    public static DirectiveRegistry load(ClassLoader classLoader) throws IOException {
+        Map<String, String> binderClasses = new TreeMap<>();
+        Enumeration<URL> indexes = classLoader.getResources(DirectiveBindingProcessor.INDEX);
+        while (indexes.hasMoreElements()) {
+            URL index = indexes.nextElement();
+            try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf('=');
+                    if (separator <= 0) {
+                        continue;
+                    }
+                    String name = line.substring(0, separator).trim();
+                    String binder = line.substring(separator + 1).trim();
+                    String existing = binderClasses.putIfAbsent(name, binder);
+                    if (existing != null && !existing.equals(binder)) {
+                        throw new IOException("Directive '" + name + "' is bound by both " + existing
+                                              + " and " + binder + " (" + index + ")");
+                    }
+                }
+            }
+        }
+        return new DirectiveRegistry(classLoader, binderClasses);
+    }
+    
+    /**
+     * Gets the names of all known directives.
+     * 
+     * @return The directive names
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(binderClasses.keySet());
+    }
+    
+    /**
+     * Checks whether a directive has been loaded.
+     * 
+     * @param name The directive name
+     * @return true if the directive's binder has been loaded
+     */
+    public boolean isLoaded(String name) {
+        return binders.containsKey(name);
+    }
+    
+    /**
+     * Gets the binder of a directive, loading it on first use.
+     * 
+     * @param name The directive name
+     * @return The binder
+     * @throws DirectiveParseException If the directive is unknown or cannot be loaded
+     */
+    public DirectiveBinder<?> getBinder(String name) throws DirectiveParseException {
+        DirectiveBinder<?> binder = binders.get(name);
+        if (binder != null) {
+            return binder;
+        }
+        String binderClass = binderClasses.get(name);
+        if (binderClass == null) {
+            throw new DirectiveParseException("Unknown directive: " + name);
+        }
+        try {
+            binder = (DirectiveBinder<?>) Class.forName(binderClass, true, classLoader)
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            throw new DirectiveParseException("Unable to load directive '" + name + "' from " + binderClass
+                                              + ": " + e);
+        }
+        DirectiveBinder<?> existing = binders.putIfAbsent(name, binder);
+        return existing != null ? existing : binder;
+    }
+    
+    /**
+     * Creates a directive from its argument tokens.
+     * 
+     * @param name The directive name
+     * @param arguments The argument tokens
+     * @return The directive
+     * @throws DirectiveParseException If the directive is unknown or the arguments do not match
+     */
+    public Directive create(String name, List<Token> arguments)
+        throws DirectiveParseException {
+        Object directive = getBinder(name).bind(arguments);
+        if (!(directive instanceof Directive)) {
+            throw new DirectiveParseException("Class " + directive.getClass().getName() + " bound to '" + name
+                                              + "' does not implement " + Directive.class.getName());
+        }
+        return (Directive) directive;
+    }
+}
@@ -0,0 +1,397 @@
+package io.cdap.wrangler.shard;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.parser.Recipe;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.steps.transformation.AggregateState;
+import io.cdap.wrangler.steps.transformation.AggregateStats;
+import io.cdap.wrangler.steps.transformation.DistinctCount;
+import io.cdap.wrangler.steps.transformation.TopK;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a recipe over a delimited file in several worker processes on the local
+ * machine and merges their partial results.
+ * 
+ * The recipe must end in {@code aggregate-stats}, and the directives before it must
+ * work row by row. The coordinator splits the file into one shard per worker,
+ * either into byte ranges on line boundaries or by the hash of a key column, and
+ * starts a {@link ShardWorker} JVM for each. Workers get the recipe on standard
+ * input and return their {@link AggregateState} on standard output, so no
+ * services beyond the JVM are needed. Workers that have not all finished by the
+ * timeout are killed, and the run fails.
+ * 
+ * Partial states are merged in shard order. {@link AggregateState} keeps its sums
+ * in fixed point, so counts and sums are identical to a single-process run however
+ * the input is split.
+ */
+public final class ShardCoordinator {
+    private static final int SCAN_BUFFER_SIZE = 8192;
+    
+    private final DirectiveRegistry registry;
+    private final int workers;
+    private final String keyColumn;
+    private final char delimiter;
+    private final int batchSize;
+    private final String javaCommand;
+    private final String classpath;
+    private final List<String> jvmOptions;
+    private final long timeoutNanos;
+    
+    /**
+     * Builder for {@link ShardCoordinator}.
+     */
+    public static final class Builder {
+        private final DirectiveRegistry registry;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private String keyColumn;
+        private char delimiter = ',';
+        private int batchSize = 4096;
+        private String javaCommand = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        private String classpath = System.getProperty("java.class.path");
+        private List<String> jvmOptions = Collections.emptyList();
+        private long timeoutNanos = TimeUnit.HOURS.toNanos(1);
+        
+        private Builder(DirectiveRegistry registry) {
+            this.registry = registry;
+        }
+        
+        /**
+         * Sets the number of worker processes, by default one per processor.
+         * 
+         * @param workers Number of workers
+         * @return This builder
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+        
+        /**
+         * Splits the input by the hash of a column instead of by byte range. Every
+         * worker then scans the whole file, but all rows with the same key are
+         * processed by the same worker.
+         * 
+         * @param keyColumn The key column
+         * @return This builder
+         */
+        public Builder keyHash(String keyColumn) {
+            this.keyColumn = keyColumn;
+            return this;
+        }
+        
+        /**
+         * Sets the field delimiter of the input, by default a comma.
+         * 
+         * @param delimiter The delimiter, a single ASCII character
+         * @return This builder
+         */
+        public Builder delimiter(char delimiter) {
+            this.delimiter = delimiter;
+            return this;
+        }
+        
+        /**
+         * Sets the number of rows each worker reads and processes in its first
+         * batch. Later batches are sized by the plan of the aggregation.
+         * 
+         * @param batchSize Rows per batch
+         * @return This builder
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+        
+        /**
+         * Sets the java launcher and class path of the workers, by default those
+         * of the current JVM.
+         * 
+         * @param javaCommand Path of the java executable
+         * @param classpath Class path holding Wrangler and the directives of the recipe
+         * @return This builder
+         */
+        public Builder jvm(String javaCommand, String classpath) {
+            this.javaCommand = javaCommand;
+            this.classpath = classpath;
+            return this;
+        }
+        
+        /**
+         * Sets options passed to every worker JVM, such as the heap size.
+         * 
+         * @param options The JVM options
+         * @return This builder
+         */
+        public Builder jvmOptions(String... options) {
+            this.jvmOptions = Arrays.asList(options.clone());
+            return this;
+        }
+        
+        /**
+         * Sets how long the workers may take together, by default one hour. Workers
+         * still running then are killed and the run fails.
+         * 
+         * @param timeout The timeout
+         * @param unit The unit of the timeout
+         * @return This builder
+         */
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutNanos = unit.toNanos(timeout);
+            return this;
+        }
+        
+        /**
+         * Creates the coordinator.
+         * 
+         * @return The coordinator
+         */
+        public ShardCoordinator build() {
+            if (workers <= 0 || batchSize <= 0 || timeoutNanos <= 0) {
+                throw new IllegalArgumentException("Workers, batch size and timeout must be positive");
+            }
+            if (delimiter > 0x7f) {
+                throw new IllegalArgumentException("Delimiter must be an ASCII character: " + delimiter);
+            }
+            return new ShardCoordinator(this);
+        }
+    }
+    
+    private ShardCoordinator(Builder builder) {
+        this.registry = builder.registry;
+        this.workers = builder.workers;
+        this.keyColumn = builder.keyColumn;
+        this.delimiter = builder.delimiter;
+        this.batchSize = builder.batchSize;
+        this.javaCommand = builder.javaCommand;
+        this.classpath = builder.classpath;
+        this.jvmOptions = builder.jvmOptions;
+        this.timeoutNanos = builder.timeoutNanos;
+    }
+    
+    /**
+     * Creates a builder for a coordinator.
+     * 
+     * @param registry The registry used to check recipes before the workers start
+     * @return The builder
+     */
+    public static Builder builder(DirectiveRegistry registry) {
+        return new Builder(registry);
+    }
+    
+    /**
+     * Runs a recipe over a file and returns the row aggregate-stats produces,
+     * holding only its two output columns.
+     * 
+     * @param input The delimited input file, with a header line
+     * @param recipe The recipe, ending in aggregate-stats
+     * @return The result row
+     * @throws IOException If the input cannot be read or a worker cannot be started
+     * @throws DirectiveParseException If the recipe is malformed or cannot be sharded
+     * @throws DirectiveExecutionException If a worker fails or times out, or nothing was aggregated
+     */
+    public Row execute(Path input, String recipe)
+        throws IOException, DirectiveParseException, DirectiveExecutionException {
+        AggregateStats aggregate = aggregateOf(new RecipeParser(registry).parse(recipe));
+        Row row = new Row();
+        aggregate.finish(Collections.singletonList(row), run(input, recipe));
+        return row;
+    }
+    
+    /**
+     * Runs a recipe over a file and returns the merged aggregation state.
+     * 
+     * @param input The delimited input file, with a header line
+     * @param recipe The recipe, ending in aggregate-stats
+     * @return The merged state
+     * @throws IOException If the input cannot be read or a worker cannot be started
+     * @throws DirectiveParseException If the recipe is malformed or cannot be sharded
+     * @throws DirectiveExecutionException If a worker fails or times out
+     */
+    public AggregateState aggregate(Path input, String recipe)
+        throws IOException, DirectiveParseException, DirectiveExecutionException {
+        aggregateOf(new RecipeParser(registry).parse(recipe));
+        return run(input, recipe);
+    }
+    
+    private AggregateState run(Path input, String recipe) throws IOException, DirectiveExecutionException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<ShardSpec> shards = plan(input);
+        List<Process> processes = new ArrayList<>(shards.size());
+        AtomicBoolean expired = new AtomicBoolean();
+        Thread watchdog = new Thread(() -> expire(processes, deadline, expired), "shard-watchdog");
+        watchdog.setDaemon(true);
+        try {
+            byte[] recipeBytes = recipe.getBytes(StandardCharsets.UTF_8);
+            for (ShardSpec shard : shards) {
+                Process process = start(shard);
+                processes.add(process);
+                try (OutputStream stdin = process.getOutputStream()) {
+                    stdin.write(recipeBytes);
+                }
+            }
+            watchdog.start();
+            AggregateState result = new AggregateState();
+            for (int i = 0; i < processes.size(); i++) {
+                result.merge(receive(i, processes.get(i), expired));
+            }
+            return result;
+        } finally {
+            watchdog.interrupt();
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+    
+    /**
+     * Waits for the workers until the deadline, then kills those still running, so
+     * that reading their output ends.
+     */
+    private static void expire(List<Process> processes, long deadline, AtomicBoolean expired) {
+        try {
+            for (Process process : processes) {
+                if (!process.waitFor(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    expired.set(true);
+                    for (Process running : processes) {
+                        running.destroyForcibly();
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // The run is over
+        }
+    }
+    
+    /**
+     * Splits the input into one shard per worker.
+     */
+    List<ShardSpec> plan(Path input) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerEnd = afterNewline(channel, 0);
+            long[] bounds = new long[workers + 1];
+            bounds[0] = headerEnd;
+            for (int i = 1; i < workers; i++) {
+                long target = headerEnd + (size - headerEnd) * i / workers;
+                bounds[i] = Math.max(bounds[i - 1], afterNewline(channel, Math.max(headerEnd, target - 1)));
+            }
+            bounds[workers] = size;
+            
+            List<ShardSpec> shards = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                long start = keyColumn == null ? bounds[i] : headerEnd;
+                long end = keyColumn == null ? bounds[i + 1] : size;
+                shards.add(new ShardSpec(input.toAbsolutePath(), delimiter, headerEnd, start, end, i, workers,
+                                         keyColumn, batchSize));
+            }
+            return shards;
+        }
+    }
+    
+    /**
+     * Finds the position just after the first line break at or after a position.
+     */
+    private static long afterNewline(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long offset = position;
+        int read;
+        while ((read = channel.read(buffer, offset)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+            buffer.clear();
+        }
+        return channel.size();
+    }
+    
+    private Process start(ShardSpec shard) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(javaCommand);
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(ShardWorker.class.getName());
+        command.addAll(Arrays.asList(shard.toArgs()));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+    
+    private AggregateState receive(int shard, Process process, AtomicBoolean expired)
+        throws IOException, DirectiveExecutionException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+            int status = in.read();
+            if (status == ShardWorker.OK) {
+                byte[] state = new byte[in.readInt()];
+                in.readFully(state);
+                return AggregateState.fromBytes(state);
+            }
+            if (status == ShardWorker.FAILED) {
+                throw new DirectiveExecutionException("Shard " + shard + " failed: " + in.readUTF());
+            }
+        } catch (EOFException e) {
+            // Killed while writing its result
+            if (!expired.get()) {
+                throw e;
+            }
+        }
+        if (expired.get()) {
+            throw new DirectiveExecutionException("Shard " + shard + " did not finish within "
+                                                  + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+        }
+        try {
+            throw new DirectiveExecutionException(
+                "Shard " + shard + " worker exited with code " + process.waitFor() + " without a result");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DirectiveExecutionException("Interrupted while waiting for shard " + shard);
+        }
+    }
+    
+    /**
+     * Checks that a recipe can be sharded and gets its final aggregate-stats.
+     * 
+     * @param directives The parsed recipe
+     * @return The final directive
+     * @throws DirectiveParseException If the recipe does not end in aggregate-stats or
+     *         aggregates before it
+     */
+    static AggregateStats aggregateOf(List<Directive> directives) throws DirectiveParseException {
+        if (directives.isEmpty() || !(directives.get(directives.size() - 1) instanceof AggregateStats)) {
+            throw new DirectiveParseException("Sharded execution needs a recipe ending in aggregate-stats");
+        }
+        for (int i = 0; i < directives.size() - 1; i++) {
+            Directive directive = directives.get(i);
+            if (directive instanceof AggregateStats || directive instanceof TopK
+                || directive instanceof DistinctCount) {
+                throw new DirectiveParseException("Directive '" + Recipe.nameOf(directives, i)
+                                                  + "' aggregates over its batch and cannot run in a shard");
+            }
+        }
+        return (AggregateStats) directives.get(directives.size() - 1);
+    }
+}
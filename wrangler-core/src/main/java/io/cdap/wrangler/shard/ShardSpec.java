@@ -0,0 +1,139 @@
+package io.cdap.wrangler.shard;
+
+import io.cdap.wrangler.sketch.Hashing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Describes the part of a delimited file that one worker processes, and how it
+ * is passed to the worker process on its command line.
+ * 
+ * A byte range shard covers the lines between {@code start} and {@code end}. A key
+ * hash shard covers the whole data section but keeps only the rows whose key
+ * column hashes to its index. The header line is always read first, so every
+ * worker sees the same columns.
+ */
+final class ShardSpec {
+    final Path file;
+    final char delimiter;
+    final long headerEnd;
+    final long start;
+    final long end;
+    final int index;
+    final int count;
+    final String keyColumn;
+    final int batchSize;
+    
+    ShardSpec(Path file, char delimiter, long headerEnd, long start, long end, int index, int count,
+              String keyColumn, int batchSize) {
+        this.file = file;
+        this.delimiter = delimiter;
+        this.headerEnd = headerEnd;
+        this.start = start;
+        this.end = end;
+        this.index = index;
+        this.count = count;
+        this.keyColumn = keyColumn;
+        this.batchSize = batchSize;
+    }
+    
+    String[] toArgs() {
+        return new String[] {
+            file.toString(), String.valueOf((int) delimiter), String.valueOf(headerEnd), String.valueOf(start),
+            String.valueOf(end), String.valueOf(index), String.valueOf(count), keyColumn == null ? "" : keyColumn,
+            String.valueOf(batchSize)
+        };
+    }
+    
+    static ShardSpec fromArgs(String[] args) {
+        if (args.length != 9) {
+            throw new IllegalArgumentException("Expected 9 shard arguments, got " + args.length);
+        }
+        return new ShardSpec(Paths.get(args[0]), (char) Integer.parseInt(args[1]), Long.parseLong(args[2]),
+                             Long.parseLong(args[3]), Long.parseLong(args[4]), Integer.parseInt(args[5]),
+                             Integer.parseInt(args[6]), args[7].isEmpty() ? null : args[7],
+                             Integer.parseInt(args[8]));
+    }
+    
+    /**
+     * Checks whether a row with the given key belongs to this shard. Rows without
+     * a key go to the first shard.
+     */
+    boolean owns(Object key) {
+        if (key == null) {
+            return index == 0;
+        }
+        return Math.floorMod(Hashing.hash64(key.toString()), count) == index;
+    }
+    
+    /**
+     * Opens the header line followed by the lines of the shard.
+     */
+    InputStream open() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Keep reading until the header is complete
+            }
+            header.flip();
+            channel.position(start);
+            InputStream data = new RangeInputStream(Channels.newInputStream(channel), end - start);
+            return new SequenceInputStream(new ByteArrayInputStream(header.array(), 0, header.limit()), data);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Reads at most a given number of bytes from another stream.
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final InputStream in;
+        private long remaining;
+        
+        private RangeInputStream(InputStream in, long length) {
+            this.in = in;
+            this.remaining = length;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package io.cdap.wrangler.shard;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.source.DelimitedReader;
+import io.cdap.wrangler.steps.transformation.AggregateState;
+import io.cdap.wrangler.steps.transformation.AggregateStats;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of the worker processes started by {@link ShardCoordinator}.
+ * 
+ * Reads the recipe from standard input, runs it over its shard and writes the
+ * outcome to standard output: a status byte, followed by either the serialized
+ * {@link AggregateState} or an error message. Anything else the worker prints
+ * goes to standard error.
+ */
+public final class ShardWorker {
+    static final int OK = 0;
+    static final int FAILED = 1;
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    private ShardWorker() {
+    }
+    
+    public static void main(String[] args) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+        try {
+            ShardSpec shard = ShardSpec.fromArgs(args);
+            String recipe = new String(System.in.readAllBytes(), StandardCharsets.UTF_8);
+            List<Directive> directives = new RecipeParser(DirectiveRegistry.load(ShardWorker.class.getClassLoader()))
+                .parse(recipe);
+            byte[] state = run(shard, directives).toBytes();
+            out.writeByte(OK);
+            out.writeInt(state.length);
+            out.write(state);
+        } catch (Exception e) {
+            out.writeByte(FAILED);
+            out.writeUTF(e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+        out.flush();
+    }
+    
+    /**
+     * Runs a recipe ending in aggregate-stats over one shard.
+     * 
+     * @param shard The shard
+     * @param directives The parsed recipe
+     * @return The partial state of the aggregation
+     * @throws IOException If the input cannot be read
+     * @throws DirectiveParseException If the recipe cannot be sharded
+     * @throws DirectiveExecutionException If a directive fails
+     */
+    static AggregateState run(ShardSpec shard, List<Directive> directives)
+        throws IOException, DirectiveParseException, DirectiveExecutionException {
+        AggregateStats aggregate = ShardCoordinator.aggregateOf(directives);
+        RecipeExecutor executor = new RecipeExecutor(directives.subList(0, directives.size() - 1), CONTEXT);
+        AggregateState state = new AggregateState();
+        try (DelimitedReader reader = new DelimitedReader(shard.open(), shard.delimiter, new Dictionary())) {
+            RowBatch batch = new RowBatch(shard.batchSize);
+            List<Row> owned = new ArrayList<>(shard.batchSize);
+            int batchSize = shard.batchSize;
+            while (reader.read(batch, batchSize) > 0) {
+                List<Row> rows = batch.rows();
+                if (shard.keyColumn != null) {
+                    owned.clear();
+                    for (Row row : rows) {
+                        if (shard.owns(row.getValue(shard.keyColumn))) {
+                            owned.add(row);
+                        }
+                    }
+                    rows = owned;
+                }
+                aggregate.accumulate(executor.execute(rows), state);
+                batchSize = aggregate.getPlan().getBatchSize();
+            }
+        }
+        return state;
+    }
+}
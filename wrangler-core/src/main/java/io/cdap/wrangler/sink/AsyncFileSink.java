@@ -0,0 +1,479 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.api.RowBatchPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes rows to a local file from a background thread.
+ * 
+ * Producers hand over rows in batches through a bounded queue and return
+ * immediately; they only wait when the queue is full. A single writer thread
+ * encodes the batches with a {@link RowEncoder} and appends them to the file
+ * through a {@link FileChannel}. Writes are grouped: the written data is
+ * committed, and forced to disk if fsync is enabled, once per
+ * {@code commitRows} rows or {@code commitInterval}, whichever comes first, so
+ * one fsync covers many batches. {@link #flush()} commits everything handed over
+ * so far and waits for it.
+ * 
+ * Rows handed to {@link #write(List)} are encoded later and must not be
+ * modified afterwards. Pooled batches can be handed over with
+ * {@link #write(RowBatch, RowBatchPool)}, which returns them to the pool once
+ * they are encoded.
+ */
+public class AsyncFileSink implements Closeable {
+    private static final int TEXT_FLUSH_CHARS = 64 * 1024;
+    
+    private final Path file;
+    private final RowEncoder encoder;
+    private final int batchSize;
+    private final long commitRows;
+    private final long commitIntervalNanos;
+    private final boolean fsync;
+    private final FileChannel channel;
+    private final BlockingQueue<Chunk> queue;
+    private final Thread writer;
+    private final long startNanos;
+    
+    // Producer side, guarded by this
+    private List<Row> pending;
+    private boolean closed;
+    
+    // Writer side
+    private final StringBuilder text;
+    private final CharsetEncoder charsetEncoder;
+    private ByteBuffer bytes;
+    private boolean headerPending;
+    private long uncommittedRows;
+    private long commitDeadline;
+    
+    private volatile IOException failure;
+    private volatile long rowsWritten;
+    private volatile long bytesWritten;
+    private volatile long commits;
+    private volatile int maxQueueDepth;
+    private volatile long producerWaits;
+    
+    /**
+     * A unit of work for the writer: rows to write, a flush request, or both.
+     */
+    private static final class Chunk {
+        private final List<Row> rows;
+        private final RowBatch batch;
+        private final RowBatchPool pool;
+        private final CountDownLatch done;
+        private final boolean last;
+        
+        private Chunk(List<Row> rows, RowBatch batch, RowBatchPool pool, CountDownLatch done, boolean last) {
+            this.rows = rows;
+            this.batch = batch;
+            this.pool = pool;
+            this.done = done;
+            this.last = last;
+        }
+    }
+    
+    /**
+     * Builder for {@link AsyncFileSink}.
+     */
+    public static final class Builder {
+        private final Path file;
+        private final RowEncoder encoder;
+        private int batchSize = 4096;
+        private int queueCapacity = 16;
+        private long commitRows = 64 * 1024;
+        private long commitIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+        private boolean fsync;
+        private int bufferSize = 1024 * 1024;
+        
+        private Builder(Path file, RowEncoder encoder) {
+            this.file = file;
+            this.encoder = encoder;
+        }
+        
+        /**
+         * Sets the number of rows collected from {@link AsyncFileSink#write(List)} before they are queued.
+         * 
+         * @param batchSize Rows per batch
+         * @return This builder
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+        
+        /**
+         * Sets the number of batches that can wait for the writer before producers block.
+         * 
+         * @param queueCapacity Maximum queued batches
+         * @return This builder
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+        
+        /**
+         * Sets the number of rows after which written data is committed.
+         * 
+         * @param commitRows Rows per group commit
+         * @return This builder
+         */
+        public Builder commitRows(long commitRows) {
+            this.commitRows = commitRows;
+            return this;
+        }
+        
+        /**
+         * Sets the longest time written rows may stay uncommitted.
+         * 
+         * @param interval The interval
+         * @param unit The unit of the interval
+         * @return This builder
+         */
+        public Builder commitInterval(long interval, TimeUnit unit) {
+            this.commitIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+        
+        /**
+         * Sets whether each commit forces the data to disk.
+         * 
+         * @param fsync Whether to fsync on commit
+         * @return This builder
+         */
+        public Builder fsync(boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+        
+        /**
+         * Sets the size of the encoded data buffered before a write to the file.
+         * 
+         * @param bufferSize Bytes buffered per write
+         * @return This builder
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+        
+        /**
+         * Opens the file for appending and starts the writer.
+         * 
+         * @return The sink
+         * @throws IOException If the file cannot be opened
+         */
+        public AsyncFileSink build() throws IOException {
+            if (batchSize <= 0 || queueCapacity <= 0 || commitRows <= 0 || commitIntervalNanos <= 0
+                || bufferSize <= 0) {
+                throw new IllegalArgumentException("Sink sizes and intervals must be positive");
+            }
+            return new AsyncFileSink(this);
+        }
+    }
+    
+    private AsyncFileSink(Builder builder) throws IOException {
+        this.file = builder.file;
+        this.encoder = builder.encoder;
+        this.batchSize = builder.batchSize;
+        this.commitRows = builder.commitRows;
+        this.commitIntervalNanos = builder.commitIntervalNanos;
+        this.fsync = builder.fsync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.APPEND);
+        this.headerPending = channel.size() == 0;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+        this.pending = new ArrayList<>(batchSize);
+        this.text = new StringBuilder(TEXT_FLUSH_CHARS + 1024);
+        this.charsetEncoder = StandardCharsets.UTF_8.newEncoder();
+        this.bytes = ByteBuffer.allocateDirect(builder.bufferSize);
+        this.startNanos = System.nanoTime();
+        this.writer = new Thread(this::run, "wrangler-sink-" + file.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Creates a builder for a sink appending to the given file.
+     * 
+     * @param file The output file
+     * @param encoder The record encoder
+     * @return The builder
+     */
+    public static Builder builder(Path file, RowEncoder encoder) {
+        return new Builder(file, encoder);
+    }
+    
+    /**
+     * Adds a row to the current batch, queueing the batch once it is full.
+     * 
+     * @param row The row
+     * @throws IOException If the writer failed or the sink is closed
+     */
+    public synchronized void write(Row row) throws IOException {
+        checkOpen();
+        pending.add(row);
+        if (pending.size() >= batchSize) {
+            enqueuePending();
+        }
+    }
+    
+    /**
+     * Adds rows to the current batch, queueing batches as they fill up.
+     * 
+     * @param rows The rows
+     * @throws IOException If the writer failed or the sink is closed
+     */
+    public synchronized void write(List<Row> rows) throws IOException {
+        checkOpen();
+        for (Row row : rows) {
+            pending.add(row);
+            if (pending.size() >= batchSize) {
+                enqueuePending();
+            }
+        }
+    }
+    
+    /**
+     * Queues a pooled batch as is. The batch is released to the pool once it has been encoded.
+     * 
+     * @param batch The batch
+     * @param pool The pool the batch came from
+     * @throws IOException If the writer failed or the sink is closed
+     */
+    public synchronized void write(RowBatch batch, RowBatchPool pool) throws IOException {
+        checkOpen();
+        enqueuePending();
+        enqueue(new Chunk(batch.rows(), batch, pool, null, false));
+    }
+    
+    /**
+     * Commits all rows written so far and waits until they are in the file, and on disk if fsync is enabled.
+     * 
+     * @throws IOException If the rows could not be written
+     */
+    public void flush() throws IOException {
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            checkOpen();
+            enqueue(new Chunk(pending, null, null, done, false));
+            pending = new ArrayList<>(batchSize);
+        }
+        await(done);
+        checkFailure();
+    }
+    
+    /**
+     * Gets the current counters of the sink.
+     * 
+     * @return The metrics
+     */
+    public SinkMetrics getMetrics() {
+        return new SinkMetrics(rowsWritten, bytesWritten, commits, queue.size(), maxQueueDepth, producerWaits,
+                               System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Writes and commits the remaining rows, stops the writer and closes the file.
+     * 
+     * @throws IOException If the rows could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            enqueue(new Chunk(pending, null, null, done, true));
+            pending = null;
+        }
+        try {
+            await(done);
+        } finally {
+            channel.close();
+        }
+        checkFailure();
+    }
+    
+    private void enqueuePending() throws IOException {
+        if (!pending.isEmpty()) {
+            enqueue(new Chunk(pending, null, null, null, false));
+            pending = new ArrayList<>(batchSize);
+        }
+    }
+    
+    private void enqueue(Chunk chunk) throws IOException {
+        try {
+            if (!queue.offer(chunk)) {
+                producerWaits++;
+                queue.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to write to " + file);
+        }
+        int depth = queue.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+    
+    private void await(CountDownLatch done) throws IOException {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + file);
+        }
+    }
+    
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Sink for " + file + " is closed");
+        }
+        checkFailure();
+    }
+    
+    private void checkFailure() throws IOException {
+        IOException e = failure;
+        if (e != null) {
+            throw new IOException("Error writing " + file + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private void run() {
+        boolean open = true;
+        while (open) {
+            Chunk chunk;
+            try {
+                chunk = uncommittedRows == 0
+                    ? queue.take()
+                    : queue.poll(commitDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Fail the sink but keep draining until it is closed, as below
+                if (failure == null) {
+                    failure = new InterruptedIOException("Sink writer interrupted");
+                }
+                uncommittedRows = 0;
+                continue;
+            }
+            try {
+                if (chunk == null) {
+                    commit();
+                    continue;
+                }
+                if (chunk.rows != null && failure == null) {
+                    encode(chunk.rows);
+                }
+                if (failure == null && (uncommittedRows >= commitRows || chunk.done != null)) {
+                    commit();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Keep draining so that producers never block on a dead writer
+                failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                uncommittedRows = 0;
+            } finally {
+                if (chunk != null) {
+                    if (chunk.pool != null) {
+                        chunk.pool.release(chunk.batch);
+                    }
+                    if (chunk.done != null) {
+                        open = !chunk.last;
+                        chunk.done.countDown();
+                    }
+                }
+            }
+        }
+    }
+    
+    private void encode(List<Row> rows) throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        if (uncommittedRows == 0) {
+            commitDeadline = System.nanoTime() + commitIntervalNanos;
+        }
+        for (Row row : rows) {
+            if (headerPending) {
+                encoder.header(row, text);
+                headerPending = false;
+            }
+            encoder.encode(row, text);
+            if (text.length() >= TEXT_FLUSH_CHARS) {
+                encodeText();
+            }
+        }
+        encodeText();
+        uncommittedRows += rows.size();
+        rowsWritten += rows.size();
+    }
+    
+    /**
+     * Moves the encoded text into the byte buffer, writing the buffer out when it runs full.
+     */
+    private void encodeText() throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        charsetEncoder.reset();
+        while (true) {
+            CoderResult result = charsetEncoder.encode(chars, bytes, true);
+            if (result.isUnderflow()) {
+                result = charsetEncoder.flush(bytes);
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isOverflow()) {
+                if (bytes.position() == 0) {
+                    bytes = ByteBuffer.allocateDirect(bytes.capacity() * 2);
+                } else {
+                    writeBytes();
+                }
+            } else {
+                result.throwException();
+            }
+        }
+        text.setLength(0);
+    }
+    
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        int written = 0;
+        while (bytes.hasRemaining()) {
+            written += channel.write(bytes);
+        }
+        bytes.clear();
+        bytesWritten += written;
+    }
+    
+    private void commit() throws IOException {
+        writeBytes();
+        if (fsync) {
+            channel.force(false);
+        }
+        if (uncommittedRows > 0) {
+            commits++;
+        }
+        uncommittedRows = 0;
+    }
+}
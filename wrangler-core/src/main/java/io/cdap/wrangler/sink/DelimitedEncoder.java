@@ -0,0 +1,89 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+
+/**
+ * Encodes rows as delimited text, e.g. CSV, readable by
+ * {@link io.cdap.wrangler.source.DelimitedReader} when no field needs quoting.
+ * 
+ * The columns are fixed by the header, which is taken from the first row. Later
+ * rows are written in that column order, with empty fields for missing columns;
+ * columns not in the header are dropped. When appending to a non-empty file no
+ * header is written, and the first row only fixes the column order. Fields containing the delimiter, a
+ * quote or a line break are quoted, with quotes doubled.
+ */
+public class DelimitedEncoder implements RowEncoder {
+    private final char delimiter;
+    private String[] columns;
+    
+    /**
+     * Creates a new DelimitedEncoder.
+     * 
+     * @param delimiter The field delimiter
+     */
+    public DelimitedEncoder(char delimiter) {
+        this.delimiter = delimiter;
+    }
+    
+    @Override
+    public void header(Row first, StringBuilder out) {
+        columnsOf(first);
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.append(delimiter);
+            }
+            appendField(columns[i], out);
+        }
+        out.append('\n');
+    }
+    
+    @Override
+    public void encode(Row row, StringBuilder out) {
+        if (columns == null) {
+            // Appending to a non-empty file, whose header was written earlier
+            columnsOf(row);
+        }
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.append(delimiter);
+            }
+            int index = i < row.width() && row.getColumn(i) == columns[i] ? i : row.find(columns[i]);
+            if (index >= 0 && Values.appendDouble(row, index, out)) {
+                continue;
+            }
+            Object value = index < 0 ? null : row.getValue(index);
+            if (value != null && !Values.appendPrimitive(value, out)) {
+                appendField(value.toString(), out);
+            }
+        }
+        out.append('\n');
+    }
+    
+    private void columnsOf(Row row) {
+        columns = new String[row.width()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = row.getColumn(i);
+        }
+    }
+    
+    private void appendField(CharSequence value, StringBuilder out) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
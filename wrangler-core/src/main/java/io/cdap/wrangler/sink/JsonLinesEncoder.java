@@ -0,0 +1,61 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+
+/**
+ * Encodes each row as a JSON object on its own line. Numbers and booleans are
+ * written as JSON values, null and non-finite numbers as {@code null} and
+ * everything else as a string.
+ */
+public class JsonLinesEncoder implements RowEncoder {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    @Override
+    public void encode(Row row, StringBuilder out) {
+        out.append('{');
+        for (int i = 0; i < row.width(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendString(row.getColumn(i), out);
+            out.append(':');
+            if (row.isDouble(i)) {
+                // Read unboxed, so that numeric results are written without allocating
+                double number = row.getDouble(i);
+                if (Double.isFinite(number)) {
+                    out.append(number);
+                } else {
+                    out.append("null");
+                }
+                continue;
+            }
+            Object value = row.getValue(i);
+            if (value == null || isNonFinite(value)) {
+                out.append("null");
+            } else if (!Values.appendPrimitive(value, out)) {
+                appendString(value.toString(), out);
+            }
+        }
+        out.append("}\n");
+    }
+    
+    private static boolean isNonFinite(Object value) {
+        return (value instanceof Double || value instanceof Float)
+            && !Double.isFinite(((Number) value).doubleValue());
+    }
+    
+    private static void appendString(CharSequence value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,29 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+
+/**
+ * Encodes rows as text records for an {@link AsyncFileSink}.
+ * 
+ * Encoders run on the sink's writer thread only and append to a builder that
+ * the sink reuses, so they may keep state between rows but need no locking.
+ */
+public interface RowEncoder {
+    
+    /**
+     * Writes a header before the first row of a new file. Does nothing by default.
+     * 
+     * @param first The first row written to the file
+     * @param out The builder to append to
+     */
+    default void header(Row first, StringBuilder out) {
+    }
+    
+    /**
+     * Appends one record, including its line terminator.
+     * 
+     * @param row The row
+     * @param out The builder to append to
+     */
+    void encode(Row row, StringBuilder out);
+}
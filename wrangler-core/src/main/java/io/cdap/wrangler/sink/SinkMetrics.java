@@ -0,0 +1,104 @@
+package io.cdap.wrangler.sink;
+
+/**
+ * A point-in-time view of the counters of an {@link AsyncFileSink}.
+ */
+public final class SinkMetrics {
+    private final long rowsWritten;
+    private final long bytesWritten;
+    private final long commits;
+    private final int queueDepth;
+    private final int maxQueueDepth;
+    private final long producerWaits;
+    private final long elapsedNanos;
+    
+    SinkMetrics(long rowsWritten, long bytesWritten, long commits, int queueDepth, int maxQueueDepth,
+                long producerWaits, long elapsedNanos) {
+        this.rowsWritten = rowsWritten;
+        this.bytesWritten = bytesWritten;
+        this.commits = commits;
+        this.queueDepth = queueDepth;
+        this.maxQueueDepth = maxQueueDepth;
+        this.producerWaits = producerWaits;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    /**
+     * Gets the number of rows written to the file.
+     * 
+     * @return The rows written
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+    
+    /**
+     * Gets the number of bytes written to the file.
+     * 
+     * @return The bytes written
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+    
+    /**
+     * Gets the number of group commits, each covering all batches written since the previous one.
+     * 
+     * @return The commits
+     */
+    public long getCommits() {
+        return commits;
+    }
+    
+    /**
+     * Gets the number of batches waiting for the writer.
+     * 
+     * @return The current queue depth
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+    
+    /**
+     * Gets the largest number of batches that were waiting for the writer at once.
+     * 
+     * @return The maximum queue depth
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+    
+    /**
+     * Gets the number of times a producer had to wait because the queue was full.
+     * 
+     * @return The producer waits
+     */
+    public long getProducerWaits() {
+        return producerWaits;
+    }
+    
+    /**
+     * Gets the write throughput since the sink was opened.
+     * 
+     * @return Rows written per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsWritten * 1e9 / elapsedNanos;
+    }
+    
+    /**
+     * Gets the write throughput since the sink was opened.
+     * 
+     * @return Bytes written per second
+     */
+    public double getBytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesWritten * 1e9 / elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("rows=%d bytes=%d commits=%d rows/s=%.0f MB/s=%.1f queue=%d maxQueue=%d waits=%d",
+                             rowsWritten, bytesWritten, commits, getRowsPerSecond(),
+                             getBytesPerSecond() / (1024 * 1024), queueDepth, maxQueueDepth, producerWaits);
+    }
+}
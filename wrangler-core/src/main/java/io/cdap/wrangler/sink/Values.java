@@ -0,0 +1,45 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+
+/**
+ * Value formatting shared by the encoders.
+ */
+final class Values {
+    
+    private Values() {
+    }
+    
+    /**
+     * Appends the value at an index of a row as a number if it is held unboxed,
+     * without boxing it.
+     * 
+     * @return Whether the value was held unboxed
+     */
+    static boolean appendDouble(Row row, int index, StringBuilder out) {
+        if (!row.isDouble(index)) {
+            return false;
+        }
+        out.append(row.getDouble(index));
+        return true;
+    }
+    
+    /**
+     * Appends a number or boolean as is.
+     * 
+     * @return Whether the value was a number or boolean
+     */
+    static boolean appendPrimitive(Object value, StringBuilder out) {
+        if (value instanceof Double || value instanceof Float) {
+            out.append(((Number) value).doubleValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+            || value instanceof Byte) {
+            out.append(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            out.append(((Boolean) value).booleanValue());
+        } else {
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package io.cdap.wrangler.sketch;
+
+/**
+ * Hash functions used by the sketches.
+ */
+public final class Hashing {
+    
+    private Hashing() {
+    }
+    
+    /**
+     * Computes a well-mixed 64-bit hash of a character sequence.
+     * FNV-1a over the characters followed by the MurmurHash3 finalizer.
+     * 
+     * @param value The value to hash
+     * @return The 64-bit hash
+     */
+    public static long hash64(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+    
+    /**
+     * MurmurHash3 64-bit finalizer.
+     * 
+     * @param hash The value to mix
+     * @return The mixed value
+     */
+    public static long mix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,133 @@
+package io.cdap.wrangler.sketch;
+
+/**
+ * HyperLogLog sketch for estimating the number of distinct values in bounded memory.
+ * 
+ * A sketch with precision {@code p} uses {@code 2^p} one-byte registers and has a
+ * relative standard error of about {@code 1.04 / sqrt(2^p)}, e.g. 0.8% at the
+ * default precision of 14 using 16KB. Sketches with the same precision can be merged.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 14;
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    /**
+     * Creates a sketch with the default precision.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+    
+    /**
+     * Creates a sketch with the given precision.
+     * 
+     * @param precision Number of index bits, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("HyperLogLog precision must be between " + MIN_PRECISION
+                                               + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    /**
+     * Adds a value to the sketch.
+     * 
+     * @param value The value
+     */
+    public void add(CharSequence value) {
+        addHash(Hashing.hash64(value));
+    }
+    
+    /**
+     * Adds a value given by its 64-bit hash.
+     * 
+     * @param hash The hash of the value
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // Guard bit keeps the rank bounded when the remaining bits are all zero
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+    
+    /**
+     * Merges another sketch into this one.
+     * 
+     * @param other The sketch to merge
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision "
+                                               + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    /**
+     * Estimates the number of distinct values added.
+     * 
+     * @return The estimated cardinality
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+    
+    /**
+     * Gets the precision of the sketch.
+     * 
+     * @return The precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+    
+    /**
+     * Gets the size of the sketch state.
+     * 
+     * @return The size in bytes
+     */
+    public int sizeInBytes() {
+        return registers.length;
+    }
+    
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
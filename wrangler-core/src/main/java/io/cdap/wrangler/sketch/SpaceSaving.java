@@ -0,0 +1,239 @@
+package io.cdap.wrangler.sketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted Space-Saving sketch for finding the heavy hitters of a stream.
+ * 
+ * Keeps at most {@code capacity} counters. When a new key arrives and all counters
+ * are taken, the counter with the smallest weight is reassigned to the new key and
+ * its old weight is carried over as the error bound. Any key whose true weight
+ * exceeds {@code total / capacity} is guaranteed to be tracked, and each reported
+ * weight overestimates the true weight by at most its error.
+ * 
+ * Counters are kept in an indexed min-heap so that each update is O(log capacity).
+ * The heap and the key index grow with the number of counters in use, so a large
+ * capacity costs nothing until that many keys are seen.
+ */
+public class SpaceSaving {
+    private static final int INITIAL_SIZE = 16;
+    
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private Counter[] heap;
+    private int size;
+    private double totalWeight;
+    
+    /**
+     * A tracked key with its estimated weight.
+     */
+    public static class Counter {
+        private String key;
+        private double weight;
+        private double error;
+        private int position;
+        
+        private Counter(String key, double weight, double error) {
+            this.key = key;
+            this.weight = weight;
+            this.error = error;
+        }
+        
+        /**
+         * Gets the key.
+         * 
+         * @return The key
+         */
+        public String getKey() {
+            return key;
+        }
+        
+        /**
+         * Gets the estimated weight, which is never below the true weight.
+         * 
+         * @return The weight
+         */
+        public double getWeight() {
+            return weight;
+        }
+        
+        /**
+         * Gets the maximum overestimation of the weight.
+         * 
+         * @return The error bound
+         */
+        public double getError() {
+            return error;
+        }
+    }
+    
+    /**
+     * Creates a new SpaceSaving sketch.
+     * 
+     * @param capacity Maximum number of counters kept
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("SpaceSaving capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>();
+        this.heap = new Counter[Math.min(capacity, INITIAL_SIZE)];
+    }
+    
+    /**
+     * Adds weight to a key.
+     * 
+     * @param key The key
+     * @param weight The weight, must not be negative
+     */
+    public void add(String key, double weight) {
+        totalWeight += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.weight += weight;
+            siftDown(counter.position);
+        } else if (size < capacity) {
+            ensureSize(size + 1);
+            counter = new Counter(key, weight, 0);
+            counter.position = size;
+            heap[size++] = counter;
+            counters.put(key, counter);
+            siftUp(counter.position);
+        } else {
+            // Evict the smallest counter and let the new key inherit its weight as error
+            counter = heap[0];
+            counters.remove(counter.key);
+            counter.key = key;
+            counter.error = counter.weight;
+            counter.weight += weight;
+            counters.put(key, counter);
+            siftDown(0);
+        }
+    }
+    
+    /**
+     * Merges another sketch into this one. Keys missing from a full sketch are
+     * assumed to have up to that sketch's minimum weight, which is added to their error.
+     * 
+     * @param other The sketch to merge
+     */
+    public void merge(SpaceSaving other) {
+        double thisMin = minWeight();
+        double otherMin = other.minWeight();
+        Map<String, Counter> merged = new HashMap<>();
+        for (Counter counter : counters.values()) {
+            Counter theirs = other.counters.get(counter.key);
+            double weight = counter.weight + (theirs != null ? theirs.weight : otherMin);
+            double error = counter.error + (theirs != null ? theirs.error : otherMin);
+            merged.put(counter.key, new Counter(counter.key, weight, error));
+        }
+        for (Counter theirs : other.counters.values()) {
+            if (!merged.containsKey(theirs.key)) {
+                merged.put(theirs.key, new Counter(theirs.key, theirs.weight + thisMin, theirs.error + thisMin));
+            }
+        }
+        
+        double total = totalWeight + other.totalWeight;
+        List<Counter> sorted = new ArrayList<>(merged.values());
+        sorted.sort((a, b) -> Double.compare(b.weight, a.weight));
+        counters.clear();
+        size = 0;
+        ensureSize(Math.min(capacity, sorted.size()));
+        for (Counter counter : sorted.subList(0, Math.min(capacity, sorted.size()))) {
+            counter.position = size;
+            heap[size++] = counter;
+            counters.put(counter.key, counter);
+        }
+        // A descending array is turned into a heap by rebuilding from the bottom
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        totalWeight = total;
+    }
+    
+    /**
+     * Gets the heaviest keys, heaviest first.
+     * 
+     * @param k Number of keys to return
+     * @return Up to k counters
+     */
+    public List<Counter> top(int k) {
+        List<Counter> sorted = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            sorted.add(heap[i]);
+        }
+        sorted.sort((a, b) -> Double.compare(b.weight, a.weight));
+        return Collections.unmodifiableList(sorted.subList(0, Math.min(k, sorted.size())));
+    }
+    
+    /**
+     * Gets the total weight added to the sketch.
+     * 
+     * @return The total weight
+     */
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+    
+    /**
+     * Gets the maximum number of counters kept.
+     * 
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    private void ensureSize(int needed) {
+        if (needed > heap.length) {
+            // Doubling in long arithmetic cannot overflow; the capacity caps it
+            heap = Arrays.copyOf(heap, (int) Math.min(capacity, Math.max(needed, 2L * heap.length)));
+        }
+    }
+    
+    private double minWeight() {
+        return size < capacity ? 0 : heap[0].weight;
+    }
+    
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].weight <= counter.weight) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+    
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].weight < heap[child].weight) {
+                child = right;
+            }
+            if (counter.weight <= heap[child].weight) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+    
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.position = i;
+    }
+}
@@ -0,0 +1,333 @@
+package io.cdap.wrangler.source;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.units.UnitPredicate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads delimited text records into {@link Row}s.
+ * 
+ * The first line holds the column names. Fields are split on a single-byte
+ * delimiter without quoting or escaping. Predicates pushed down with
+ * {@link #pushdown(String, UnitPredicate)} are evaluated on the raw bytes of
+ * each record, and records that cannot match are skipped before any
+ * {@code Row} or {@code String} is allocated for them.
+ * 
+ * Given a {@link Dictionary}, the reader interns column names and encodes the
+ * values of low-cardinality columns through it. Repeated values then share one
+ * {@code String} across rows and readers and carry their code in the row.
+ * Every other field of a matching record is read into a new {@code String}.
+ */
+public class DelimitedReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    
+    private final InputStream in;
+    private final byte delimiter;
+    private final List<String> columns;
+    private final List<Pushdown> pushdowns;
+    private final FieldEncoder encoder;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private long rowsScanned;
+    private long rowsMaterialized;
+    
+    private static final class Pushdown {
+        private final int index;
+        private final UnitPredicate predicate;
+        
+        private Pushdown(int index, UnitPredicate predicate) {
+            this.index = index;
+            this.predicate = predicate;
+        }
+    }
+    
+    /**
+     * Creates a new DelimitedReader and reads the header line.
+     * 
+     * @param in The input
+     * @param delimiter The field delimiter, a single ASCII character
+     * @throws IOException If the header cannot be read
+     */
+    public DelimitedReader(InputStream in, char delimiter) throws IOException {
+        this(in, delimiter, null);
+    }
+    
+    /**
+     * Creates a new DelimitedReader that encodes values through a dictionary and reads the header line.
+     * 
+     * @param in The input
+     * @param delimiter The field delimiter, a single ASCII character
+     * @param dictionary The dictionary shared by the readers of a job, or null to read plain strings
+     * @throws IOException If the header cannot be read
+     */
+    public DelimitedReader(InputStream in, char delimiter, Dictionary dictionary) throws IOException {
+        if (delimiter > 0x7f) {
+            throw new IllegalArgumentException("Delimiter must be an ASCII character: " + delimiter);
+        }
+        this.in = in;
+        this.delimiter = (byte) delimiter;
+        this.pushdowns = new ArrayList<>();
+        this.buffer = new byte[DEFAULT_BUFFER_SIZE];
+        this.fieldStarts = new int[16];
+        this.fieldEnds = new int[16];
+        
+        List<String> header = new ArrayList<>();
+        int end = nextLine();
+        if (end >= 0) {
+            int count = split(position, end);
+            for (int i = 0; i < count; i++) {
+                String name = new String(buffer, fieldStarts[i], fieldEnds[i] - fieldStarts[i],
+                                         StandardCharsets.UTF_8).trim();
+                header.add(dictionary == null ? name : dictionary.intern(name));
+            }
+            position = skipNewline(end);
+        }
+        this.columns = Collections.unmodifiableList(header);
+        this.encoder = dictionary == null ? null : new FieldEncoder(dictionary, header.size());
+    }
+    
+    /**
+     * Gets the column names read from the header.
+     * 
+     * @return The column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+    
+    /**
+     * Pushes a predicate down to the reader. Records whose value for the column
+     * is known not to satisfy the predicate, or that lack the column, are skipped.
+     * 
+     * @param column The column name
+     * @param predicate The predicate
+     */
+    public void pushdown(String column, UnitPredicate predicate) {
+        int index = columns.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown column for pushdown: " + column);
+        }
+        pushdowns.add(new Pushdown(index, predicate));
+    }
+    
+    /**
+     * Reads the next record that passes all pushed down predicates.
+     * 
+     * @return The row, or null at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    public Row next() throws IOException {
+        int count = advance();
+        if (count < 0) {
+            return null;
+        }
+        Row row = new Row();
+        materialize(row, count);
+        return row;
+    }
+    
+    /**
+     * Fills a batch with up to {@code max} rows, reusing the rows the batch
+     * already holds. The batch is cleared first.
+     * 
+     * @param batch The batch to fill
+     * @param max Maximum number of rows
+     * @return The number of rows read; 0 at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    public int read(RowBatch batch, int max) throws IOException {
+        batch.clear();
+        int count;
+        while (batch.size() < max && (count = advance()) >= 0) {
+            materialize(batch.next(), count);
+        }
+        return batch.size();
+    }
+    
+    /**
+     * Moves to the next record that passes all pushed down predicates and splits it.
+     * 
+     * @return The number of fields, or -1 at the end of the input
+     */
+    private int advance() throws IOException {
+        while (true) {
+            int end = nextLine();
+            if (end < 0) {
+                return -1;
+            }
+            int start = position;
+            position = skipNewline(end);
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            if (end == start) {
+                continue;
+            }
+            rowsScanned++;
+            int count = split(start, end);
+            if (!accept(count)) {
+                continue;
+            }
+            rowsMaterialized++;
+            return count;
+        }
+    }
+    
+    /**
+     * Reads up to {@code max} rows.
+     * 
+     * @param max Maximum number of rows
+     * @return The rows; empty at the end of the input
+     * @throws IOException If the input cannot be read
+     */
+    public List<Row> read(int max) throws IOException {
+        List<Row> rows = new ArrayList<>(Math.min(max, 1024));
+        Row row;
+        while (rows.size() < max && (row = next()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    /**
+     * Checks whether the values of a column are dictionary-encoded. Columns stop
+     * being encoded once they turn out to have too many distinct values.
+     * 
+     * @param column The column name
+     * @return true if values of the column are encoded
+     */
+    public boolean isEncoded(String column) {
+        int index = columns.indexOf(column);
+        return encoder != null && index >= 0 && encoder.isEncoded(index);
+    }
+    
+    /**
+     * Gets the number of records scanned so far.
+     * 
+     * @return The records scanned
+     */
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+    
+    /**
+     * Gets the number of records turned into rows so far.
+     * 
+     * @return The rows materialized
+     */
+    public long getRowsMaterialized() {
+        return rowsMaterialized;
+    }
+    
+    private boolean accept(int count) {
+        for (Pushdown pushdown : pushdowns) {
+            if (pushdown.index >= count
+                || !pushdown.predicate.mayMatch(buffer, fieldStarts[pushdown.index], fieldEnds[pushdown.index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void materialize(Row row, int count) {
+        int fields = Math.min(count, columns.size());
+        for (int i = 0; i < fields; i++) {
+            if (encoder != null) {
+                encoder.add(row, columns.get(i), i, buffer, fieldStarts[i], fieldEnds[i]);
+            } else {
+                row.add(columns.get(i), new String(buffer, fieldStarts[i], fieldEnds[i] - fieldStarts[i],
+                                                   StandardCharsets.UTF_8));
+            }
+        }
+    }
+    
+    /**
+     * Records the field boundaries of the line into fieldStarts and fieldEnds.
+     */
+    private int split(int start, int end) {
+        int count = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == delimiter) {
+                if (count == fieldStarts.length) {
+                    int[] starts = new int[count * 2];
+                    int[] ends = new int[count * 2];
+                    System.arraycopy(fieldStarts, 0, starts, 0, count);
+                    System.arraycopy(fieldEnds, 0, ends, 0, count);
+                    fieldStarts = starts;
+                    fieldEnds = ends;
+                }
+                fieldStarts[count] = fieldStart;
+                fieldEnds[count] = i;
+                count++;
+                fieldStart = i + 1;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Finds the end of the line starting at position, refilling the buffer as needed.
+     * 
+     * @return The index of the line terminator (or end of data), or -1 at the end of the input
+     */
+    private int nextLine() throws IOException {
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            if (eof) {
+                return position < limit ? limit : -1;
+            }
+            scanned = limit - position;
+            fill();
+            // fill() moves the pending line to the start of the buffer
+            scanned = position + scanned;
+        }
+    }
+    
+    private void fill() throws IOException {
+        int pending = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, pending);
+            position = 0;
+            limit = pending;
+        }
+        if (limit == buffer.length) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, limit);
+            buffer = grown;
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+    
+    private int skipNewline(int end) {
+        return end < limit ? end + 1 : end;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
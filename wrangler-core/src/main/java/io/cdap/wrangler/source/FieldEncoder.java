@@ -0,0 +1,98 @@
+package io.cdap.wrangler.source;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.Row;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Turns the field bytes of one reader into dictionary-encoded strings.
+ * 
+ * A direct-mapped cache from field bytes to the shared string and its code lets
+ * repeated values skip decoding entirely, so they cost neither a {@code String}
+ * nor a dictionary lookup. The first {@link #SAMPLE} values of each column decide
+ * whether it is worth encoding: columns where most of them are cache misses,
+ * such as ids or timestamps, are read as plain strings from then on.
+ */
+final class FieldEncoder {
+    static final int SAMPLE = 1024;
+    private static final int CACHE_SIZE = 4096;
+    
+    private final Dictionary dictionary;
+    private final int[] hashes;
+    private final byte[][] keys;
+    private final String[] values;
+    private final int[] codes;
+    private final int[] lookups;
+    private final int[] misses;
+    private final boolean[] plain;
+    
+    FieldEncoder(Dictionary dictionary, int columns) {
+        this.dictionary = dictionary;
+        this.hashes = new int[CACHE_SIZE];
+        this.keys = new byte[CACHE_SIZE][];
+        this.values = new String[CACHE_SIZE];
+        this.codes = new int[CACHE_SIZE];
+        this.lookups = new int[columns];
+        this.misses = new int[columns];
+        this.plain = new boolean[columns];
+    }
+    
+    /**
+     * Adds a field to the row, encoded if its column is.
+     */
+    void add(Row row, String column, int field, byte[] buffer, int start, int end) {
+        if (plain[field]) {
+            row.add(column, new String(buffer, start, end - start, StandardCharsets.UTF_8));
+            return;
+        }
+        int hash = hash(buffer, start, end);
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        byte[] key = keys[slot];
+        if (key != null && hashes[slot] == hash && Arrays.equals(key, 0, key.length, buffer, start, end)) {
+            sample(field, false);
+            row.add(column, values[slot], codes[slot]);
+            return;
+        }
+        sample(field, true);
+        String value = new String(buffer, start, end - start, StandardCharsets.UTF_8);
+        int code = dictionary.encode(value);
+        if (code == Dictionary.NONE) {
+            row.add(column, value);
+            return;
+        }
+        String shared = dictionary.decode(code);
+        hashes[slot] = hash;
+        keys[slot] = Arrays.copyOfRange(buffer, start, end);
+        values[slot] = shared;
+        codes[slot] = code;
+        row.add(column, shared, code);
+    }
+    
+    boolean isEncoded(int field) {
+        return !plain[field];
+    }
+    
+    private void sample(int field, boolean miss) {
+        if (lookups[field] == SAMPLE) {
+            return;
+        }
+        lookups[field]++;
+        if (miss) {
+            misses[field]++;
+        }
+        if (lookups[field] == SAMPLE && misses[field] > SAMPLE * 3 / 4) {
+            plain[field] = true;
+        }
+    }
+    
+    private static int hash(byte[] buffer, int start, int end) {
+        int hash = 0x811c9dc5;
+        for (int i = start; i < end; i++) {
+            hash ^= buffer[i];
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,157 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.Optional;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Periodically writes {@link AggregateState} snapshots to a local file.
+ * 
+ * Snapshots are handed to a single background writer, so the aggregation loop
+ * only pays for copying the state. If the writer falls behind, older pending
+ * snapshots are replaced by newer ones instead of queueing up. Each checkpoint
+ * is written to a temporary file, forced to disk and atomically renamed over
+ * the previous one, so a crash never leaves a partially written checkpoint.
+ */
+public class AggregateCheckpointer implements Closeable {
+    private final Path file;
+    private final Path tempFile;
+    private final long interval;
+    private final ExecutorService writer;
+    private final AtomicReference<AggregateState> pending;
+    private volatile IOException failure;
+    private long lastOffset;
+    
+    /**
+     * Creates a new AggregateCheckpointer.
+     * 
+     * @param file The checkpoint file
+     * @param interval Number of input records between checkpoints
+     */
+    public AggregateCheckpointer(Path file, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.interval = interval;
+        this.pending = new AtomicReference<>();
+        this.lastOffset = -1;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "aggregate-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Takes a checkpoint if at least {@code interval} records were consumed since the last one.
+     * Called from the aggregation loop, so it never waits for the disk.
+     * 
+     * @param state The live state
+     * @throws DirectiveExecutionException If a previous checkpoint write failed
+     */
+    public void maybeCheckpoint(AggregateState state) throws DirectiveExecutionException {
+        long offset = state.getOffset();
+        if (lastOffset < 0) {
+            // Align to the interval so that checkpoints land on the same offsets after a resume
+            lastOffset = offset - offset % interval;
+        }
+        if (offset - lastOffset >= interval) {
+            checkpoint(state);
+        }
+    }
+    
+    /**
+     * Schedules an asynchronous checkpoint of the given state.
+     * 
+     * @param state The live state
+     * @throws DirectiveExecutionException If a previous checkpoint write failed
+     */
+    public void checkpoint(AggregateState state) throws DirectiveExecutionException {
+        checkFailure();
+        lastOffset = state.getOffset();
+        if (pending.getAndSet(state.snapshot()) == null) {
+            writer.execute(this::drain);
+        }
+    }
+    
+    private void drain() {
+        AggregateState snapshot = pending.getAndSet(null);
+        if (snapshot == null || failure != null) {
+            return;
+        }
+        try {
+            write(snapshot);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+    
+    private void write(AggregateState snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(snapshot.toBytes());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private void checkFailure() throws DirectiveExecutionException {
+        if (failure != null) {
+            throw new DirectiveExecutionException("Error writing checkpoint " + file + ": "
+                                                  + failure.getMessage());
+        }
+    }
+    
+    /**
+     * Loads the last checkpoint written to the given file.
+     * 
+     * @param file The checkpoint file
+     * @return The checkpointed state, or an empty Optional if there is no checkpoint
+     * @throws IOException If the checkpoint cannot be read
+     */
+    public static Optional<AggregateState> load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Optional.of(null);
+        }
+        return Optional.of(AggregateState.fromBytes(Files.readAllBytes(file)));
+    }
+    
+    /**
+     * Waits for pending checkpoints to be written and stops the writer.
+     * 
+     * @throws IOException If a checkpoint could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                throw new IOException("Timed out waiting for checkpoint " + file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for checkpoint " + file);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package io.cdap.wrangler.steps.transformation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Running state of the aggregate-stats directive.
+ * 
+ * Holds the sums accumulated so far together with the number of input records
+ * consumed, so that a long-running aggregation can be snapshotted and resumed
+ * from the same point of the input. The sums are kept exactly, so states built
+ * over parts of the input merge to the same totals as a single pass over all of it.
+ * 
+ * The state also keeps the minimum, maximum and variance of each column, all
+ * updated in the same pass. Merged variances can differ from a single pass in
+ * the last bits.
+ */
+public class AggregateState {
+    private static final int FORMAT_VERSION = 4;
+    // Rough heap size of a state with its sums and moments, for memory accounting
+    static final long ESTIMATED_BYTES = 256;
+    
+    private final ExactSum totalBytes;
+    private final ExactSum totalNanos;
+    private final Moments sizeMoments;
+    private final Moments timeMoments;
+    private long count;
+    private long offset;
+    
+    /**
+     * Creates an empty state positioned at the start of the input.
+     */
+    public AggregateState() {
+        this(new ExactSum(), new ExactSum(), new Moments(), new Moments(), 0, 0);
+    }
+    
+    AggregateState(ExactSum totalBytes, ExactSum totalNanos, Moments sizeMoments, Moments timeMoments,
+                   long count, long offset) {
+        this.totalBytes = totalBytes;
+        this.totalNanos = totalNanos;
+        this.sizeMoments = sizeMoments;
+        this.timeMoments = timeMoments;
+        this.count = count;
+        this.offset = offset;
+    }
+    
+    /**
+     * Adds one aggregated value pair.
+     * 
+     * @param bytes The size in bytes
+     * @param nanos The duration in nanoseconds
+     */
+    public void add(double bytes, double nanos) {
+        totalBytes.add(bytes);
+        totalNanos.add(nanos);
+        count++;
+        double inverse = 1.0 / count;
+        sizeMoments.add(bytes, inverse);
+        timeMoments.add(nanos, inverse);
+    }
+    
+    /**
+     * Marks one input record as consumed, whether or not it contributed a value.
+     */
+    public void advance() {
+        offset++;
+    }
+    
+    /**
+     * Merges another state into this one. Offsets are added, so merging is only
+     * meaningful for states built over disjoint parts of the input.
+     * 
+     * @param other The state to merge
+     */
+    public void merge(AggregateState other) {
+        totalBytes.add(other.totalBytes);
+        totalNanos.add(other.totalNanos);
+        sizeMoments.merge(count, other.sizeMoments, other.count);
+        timeMoments.merge(count, other.timeMoments, other.count);
+        count += other.count;
+        offset += other.offset;
+    }
+    
+    /**
+     * Takes an independent copy of the current state.
+     * 
+     * @return The snapshot
+     */
+    public AggregateState snapshot() {
+        return new AggregateState(new ExactSum(totalBytes), new ExactSum(totalNanos), new Moments(sizeMoments),
+                                  new Moments(timeMoments), count, offset);
+    }
+    
+    /**
+     * Gets the sum of all sizes, in bytes.
+     * 
+     * @return The total bytes
+     */
+    public double getTotalBytes() {
+        return totalBytes.doubleValue();
+    }
+    
+    /**
+     * Gets the sum of all durations, in nanoseconds.
+     * 
+     * @return The total nanoseconds
+     */
+    public double getTotalNanos() {
+        return totalNanos.doubleValue();
+    }
+    
+    /**
+     * Gets the smallest size, in bytes.
+     * 
+     * @return The minimum, infinite if nothing was aggregated
+     */
+    public double getMinBytes() {
+        return sizeMoments.getMin();
+    }
+    
+    /**
+     * Gets the largest size, in bytes.
+     * 
+     * @return The maximum, infinite if nothing was aggregated
+     */
+    public double getMaxBytes() {
+        return sizeMoments.getMax();
+    }
+    
+    /**
+     * Gets the sample variance of the sizes, in square bytes.
+     * 
+     * @return The variance, 0 for a single value
+     */
+    public double getBytesVariance() {
+        return sizeMoments.getVariance(count);
+    }
+    
+    /**
+     * Gets the shortest duration, in nanoseconds.
+     * 
+     * @return The minimum, infinite if nothing was aggregated
+     */
+    public double getMinNanos() {
+        return timeMoments.getMin();
+    }
+    
+    /**
+     * Gets the longest duration, in nanoseconds.
+     * 
+     * @return The maximum, infinite if nothing was aggregated
+     */
+    public double getMaxNanos() {
+        return timeMoments.getMax();
+    }
+    
+    /**
+     * Gets the sample variance of the durations, in square nanoseconds.
+     * 
+     * @return The variance, 0 for a single value
+     */
+    public double getNanosVariance() {
+        return timeMoments.getVariance(count);
+    }
+    
+    /**
+     * Gets the number of value pairs aggregated.
+     * 
+     * @return The count
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * Gets the number of input records consumed.
+     * 
+     * @return The input offset
+     */
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Serializes the state.
+     * 
+     * @return The serialized form
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            totalBytes.write(out);
+            totalNanos.write(out);
+            out.writeLong(count);
+            out.writeLong(offset);
+            sizeMoments.write(out);
+            timeMoments.write(out);
+        } catch (IOException e) {
+            // Cannot happen when writing to memory
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * Deserializes a state written by {@link #toBytes()}.
+     * 
+     * @param data The serialized form
+     * @return The state
+     * @throws IOException If the data is truncated or of an unknown version
+     */
+    public static AggregateState fromBytes(byte[] data) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported aggregate state version: " + version);
+            }
+            ExactSum totalBytes = ExactSum.read(in);
+            ExactSum totalNanos = ExactSum.read(in);
+            long count = in.readLong();
+            long offset = in.readLong();
+            return new AggregateState(totalBytes, totalNanos, Moments.read(in), Moments.read(in), count, offset);
+        }
+    }
+}
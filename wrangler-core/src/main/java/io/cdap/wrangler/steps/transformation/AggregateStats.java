@@ -1,22 +1,78 @@
 package io.cdap.wrangler.steps.transformation;
 
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.Directive;
 import io.cdap.wrangler.api.DirectiveExecutionException;
 import io.cdap.wrangler.api.DirectiveParseException;
 import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
 import io.cdap.wrangler.api.Optional;
 import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
 import io.cdap.wrangler.api.parser.ByteSize;
 import io.cdap.wrangler.api.parser.SyntaxError;
 import io.cdap.wrangler.api.parser.TimeDuration;
 import io.cdap.wrangler.api.parser.TokenType;
 import io.cdap.wrangler.api.parser.UsageDefinition;
+import io.cdap.wrangler.jfr.CacheStatisticsEvent;
+import io.cdap.wrangler.jfr.ValueParseFailureEvent;
+import io.cdap.wrangler.planner.BatchPlanner;
+import io.cdap.wrangler.planner.ExecutionPlan;
+import io.cdap.wrangler.units.ParseMemo;
+import io.cdap.wrangler.units.ParsedValueCache;
+import io.cdap.wrangler.units.UnitParser;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * A directive for aggregating byte size and time duration values.
+ * 
+ * Any set of statistics (count, sum, mean, min, max, variance and stddev) is
+ * computed in one pass, parsing each value once. A single statistic is written
+ * to the given output columns; several are written to {@code <output>_<statistic>}.
+ * 
+ * Batches are run as planned by a {@link BatchPlanner}, which may split a costly
+ * batch over several threads or cache parsed values that repeat. The exact sums
+ * of {@link AggregateState} make the result the same either way.
  */
-public class AggregateStats {
+public class AggregateStats implements Directive {
+    
+    /**
+     * A statistic the directive can compute, with the names it is requested by.
+     */
+    private enum Statistic {
+        COUNT("count"),
+        SUM("sum", "total"),
+        MEAN("mean", "average"),
+        MIN("min"),
+        MAX("max"),
+        VARIANCE("variance"),
+        STDDEV("stddev");
+        
+        private final String name;
+        private final String[] aliases;
+        
+        Statistic(String name, String... aliases) {
+            this.name = name;
+            this.aliases = aliases;
+        }
+        
+        static Statistic of(String name) throws DirectiveParseException {
+            for (Statistic statistic : values()) {
+                if (statistic.name.equals(name) || Arrays.asList(statistic.aliases).contains(name)) {
+                    return statistic;
+                }
+            }
+            throw new DirectiveParseException(
+                "Unknown aggregate-stats operation '" + name
+                    + "'. Expected one or more of: count, sum, mean, min, max, variance, stddev");
+        }
+    }
     
     private final String sizeColumn;
     private final String timeColumn;
@@ -24,7 +80,15 @@ public class AggregateStats {
     private final String timeOutputColumn;
     private final String sizeUnit;
     private final String timeUnit;
-    private final String operation;
+    private final Statistic[] statistics;
+    private final String[] sizeOutputs;
+    private final String[] timeOutputs;
+    private final ParsedValueCache sizes;
+    private final ParsedValueCache durations;
+    private final ThreadLocal<ParseMemo> sizeMemos;
+    private final ThreadLocal<ParseMemo> durationMemos;
+    private BatchPlanner planner;
+    private AggregateCheckpointer checkpointer;
     
     /**
      * Constructor for the AggregateStats directive.
@@ -35,19 +99,57 @@ public class AggregateStats {
      * @param timeOutputColumn Output column for aggregated time
      * @param sizeUnit Output unit for size (B, KB, MB, GB, TB, PB)
      * @param timeUnit Output unit for time (ns, µs, ms, s, m, h, d)
-     * @param operation Aggregation operation (total, average)
+     * @param operation Statistics to compute, separated by commas (count, sum or total,
+     *                  mean or average, min, max, variance, stddev)
+     * @throws DirectiveParseException If a statistic is unknown
      */
+    @DirectiveBinding("aggregate-stats")
     public AggregateStats(String sizeColumn, String timeColumn, 
                          String sizeOutputColumn, String timeOutputColumn,
                          Optional<String> sizeUnit, Optional<String> timeUnit,
-                         Optional<String> operation) {
+                         Optional<String> operation) throws DirectiveParseException {
         this.sizeColumn = sizeColumn;
         this.timeColumn = timeColumn;
         this.sizeOutputColumn = sizeOutputColumn;
         this.timeOutputColumn = timeOutputColumn;
         this.sizeUnit = sizeUnit.isPresent() ? sizeUnit.get() : "B";
         this.timeUnit = timeUnit.isPresent() ? timeUnit.get() : "ns";
-        this.operation = operation.isPresent() ? operation.get().toLowerCase() : "total";
+        this.statistics = parseStatistics(operation.isPresent() ? operation.get() : "total");
+        this.sizeOutputs = outputs(sizeOutputColumn, statistics);
+        this.timeOutputs = outputs(timeOutputColumn, statistics);
+        this.sizes = new ParsedValueCache(UnitParser.Kind.BYTE_SIZE);
+        this.durations = new ParsedValueCache(UnitParser.Kind.TIME_DURATION);
+        this.sizeMemos = ThreadLocal.withInitial(() -> new ParseMemo(UnitParser.Kind.BYTE_SIZE));
+        this.durationMemos = ThreadLocal.withInitial(() -> new ParseMemo(UnitParser.Kind.TIME_DURATION));
+        this.planner = BatchPlanner.builder("aggregate-stats")
+            .column(sizeColumn)
+            .column(timeColumn)
+            .build();
+    }
+    
+    private static Statistic[] parseStatistics(String operation) throws DirectiveParseException {
+        List<Statistic> statistics = new ArrayList<>();
+        for (String name : operation.toLowerCase().split("[,\\s]+")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            Statistic statistic = Statistic.of(name);
+            if (!statistics.contains(statistic)) {
+                statistics.add(statistic);
+            }
+        }
+        if (statistics.isEmpty()) {
+            throw new DirectiveParseException("No aggregate-stats operation given");
+        }
+        return statistics.toArray(new Statistic[0]);
+    }
+    
+    private static String[] outputs(String column, Statistic[] statistics) {
+        String[] outputs = new String[statistics.length];
+        for (int i = 0; i < statistics.length; i++) {
+            outputs[i] = statistics.length == 1 ? column : column + "_" + statistics[i].name;
+        }
+        return outputs;
     }
     
     /**
@@ -67,6 +169,37 @@ public class AggregateStats {
             .build();
     }
     
+    /**
+     * Enables periodic checkpoints of the aggregation state.
+     * 
+     * @param checkpointer The checkpointer to hand snapshots to
+     * @return This directive
+     */
+    public AggregateStats withCheckpointer(AggregateCheckpointer checkpointer) {
+        this.checkpointer = checkpointer;
+        return this;
+    }
+    
+    /**
+     * Replaces the planner that chooses how batches are run.
+     * 
+     * @param planner The planner, which should sample the size and time columns
+     * @return This directive
+     */
+    public AggregateStats withPlanner(BatchPlanner planner) {
+        this.planner = planner;
+        return this;
+    }
+    
+    /**
+     * Gets the current plan, e.g. to size the next batch read from a source.
+     * 
+     * @return The plan
+     */
+    public ExecutionPlan getPlan() {
+        return planner.getPlan();
+    }
+    
     /**
      * Executes the aggregation directive on the rows.
      * 
@@ -75,62 +208,312 @@ public class AggregateStats {
      * @return The processed rows
      * @throws DirectiveExecutionException If an error occurs during execution
      */
+    @Override
     public List<Row> execute(List<Row> rows, ExecutorContext context) 
         throws DirectiveExecutionException {
-        
-        double totalBytes = 0;
-        double totalNanos = 0;
-        int rowCount = 0;
-        
-        // Process each row
+        MemoryBudget budget = context.getMemoryBudget();
+        budget.reserve(AggregateState.ESTIMATED_BYTES);
+        try {
+            return execute(rows, context, new AggregateState());
+        } finally {
+            budget.release(AggregateState.ESTIMATED_BYTES);
+        }
+    }
+    
+    /**
+     * Resumes the aggregation from a checkpointed state. The rows are the full
+     * input replayed from the beginning; the first {@code state.getOffset()} rows
+     * are already accounted for in the state and are not parsed again.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @param state The state to resume from
+     * @return The processed rows
+     * @throws DirectiveExecutionException If an error occurs during execution
+     */
+    public List<Row> execute(List<Row> rows, ExecutorContext context, AggregateState state) 
+        throws DirectiveExecutionException {
+        long offset = state.getOffset();
+        if (offset > rows.size()) {
+            throw new DirectiveExecutionException(
+                "Checkpoint offset " + offset + " is past the end of the input (" + rows.size() + " rows)");
+        }
+        accumulate(rows.subList((int) offset, rows.size()), state, context.getMemoryBudget());
+        return finish(rows, state);
+    }
+    
+    /**
+     * Folds rows into the running state. The rows are taken to follow directly
+     * after the {@code state.getOffset()} records already consumed, so a stream
+     * can be fed batch by batch.
+     * 
+     * If the plan splits the batch and a value cannot be parsed, the state covers
+     * the chunks before the one holding that value. With a checkpointer, batches
+     * are always run sequentially.
+     * 
+     * @param rows The next rows of the input
+     * @param state The running state
+     * @throws DirectiveExecutionException If a value cannot be parsed
+     */
+    public void accumulate(List<Row> rows, AggregateState state) throws DirectiveExecutionException {
+        accumulate(rows, state, MemoryBudget.UNLIMITED);
+    }
+    
+    /**
+     * Folds rows into the running state, reserving the states of a split batch
+     * from a budget.
+     */
+    private void accumulate(List<Row> rows, AggregateState state, MemoryBudget budget)
+        throws DirectiveExecutionException {
+        ExecutionPlan plan = planner.plan(rows);
+        long start = System.nanoTime();
+        if (plan.getParallelism() > 1 && checkpointer == null) {
+            long bytes = plan.getParallelism() * AggregateState.ESTIMATED_BYTES;
+            budget.reserve(bytes);
+            try {
+                accumulateParallel(rows, state, plan);
+            } finally {
+                budget.release(bytes);
+            }
+        } else {
+            accumulate(rows, state, plan.isCached());
+        }
+        planner.record(plan, rows.size(), System.nanoTime() - start);
+    }
+    
+    /**
+     * Splits a batch into one chunk per thread of the plan. The calling thread takes
+     * the first chunk; the others go to the common pool. Each chunk hands back its
+     * parse failure instead of throwing it, so that it keeps its type.
+     */
+    private void accumulateParallel(List<Row> rows, AggregateState state, ExecutionPlan plan)
+        throws DirectiveExecutionException {
+        int chunkSize = (rows.size() + plan.getParallelism() - 1) / plan.getParallelism();
+        List<AggregateState> parts = new ArrayList<>();
+        List<Future<DirectiveExecutionException>> chunks = new ArrayList<>();
+        for (int start = chunkSize; start < rows.size(); start += chunkSize) {
+            List<Row> chunk = rows.subList(start, Math.min(rows.size(), start + chunkSize));
+            AggregateState part = new AggregateState();
+            parts.add(part);
+            chunks.add(ForkJoinPool.commonPool().submit(() -> {
+                try {
+                    accumulate(chunk, part, plan.isCached());
+                    return null;
+                } catch (DirectiveExecutionException e) {
+                    return e;
+                }
+            }));
+        }
+        try {
+            AggregateState first = new AggregateState();
+            accumulate(rows.subList(0, Math.min(rows.size(), chunkSize)), first, plan.isCached());
+            state.merge(first);
+            for (int i = 0; i < chunks.size(); i++) {
+                DirectiveExecutionException failure = chunks.get(i).get();
+                if (failure != null) {
+                    throw failure;
+                }
+                state.merge(parts.get(i));
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DirectiveExecutionException("Error aggregating rows: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DirectiveExecutionException("Interrupted while aggregating rows");
+        } finally {
+            for (Future<DirectiveExecutionException> chunk : chunks) {
+                chunk.cancel(false);
+            }
+        }
+    }
+    
+    private void accumulate(List<Row> rows, AggregateState state, boolean cached)
+        throws DirectiveExecutionException {
+        ParseMemo sizeMemo = cached ? sizeMemos.get() : null;
+        ParseMemo durationMemo = cached ? durationMemos.get() : null;
+        long hits = cached ? sizeMemo.getHits() + durationMemo.getHits() : 0;
+        long misses = cached ? sizeMemo.getMisses() + durationMemo.getMisses() : 0;
+        int sizeIndex = -1;
+        int timeIndex = -1;
         for (Row row : rows) {
-            if (row.find(sizeColumn) != -1 && row.find(timeColumn) != -1) {
-                String sizeStr = (String) row.getValue(sizeColumn);
-                String timeStr = (String) row.getValue(timeColumn);
+            sizeIndex = find(row, sizeColumn, sizeIndex);
+            timeIndex = find(row, timeColumn, timeIndex);
+            if (sizeIndex != -1 && timeIndex != -1) {
+                String sizeStr = (String) row.getValue(sizeIndex);
+                String timeStr = (String) row.getValue(timeIndex);
                 
                 try {
-                    ByteSize byteSize = new ByteSize(sizeStr);
-                    TimeDuration timeDuration = new TimeDuration(timeStr);
-                    
-                    totalBytes += (double) byteSize.value();
-                    totalNanos += (double) timeDuration.value();
-                    rowCount++;
+                    state.add(parseBytes(sizeStr, row.getCode(sizeIndex), sizeMemo),
+                              parseNanos(timeStr, row.getCode(timeIndex), durationMemo));
                 } catch (SyntaxError e) {
-                    throw new DirectiveExecutionException(
-                        "Error parsing value: " + e.getMessage());
+                    throw parseFailure(sizeStr, timeStr, e);
                 }
             }
+            state.advance();
+            if (checkpointer != null) {
+                checkpointer.maybeCheckpoint(state);
+            }
         }
-        
+        if (cached) {
+            CacheStatisticsEvent.record("parse-memo", sizeMemo.getHits() + durationMemo.getHits() - hits,
+                                        sizeMemo.getMisses() + durationMemo.getMisses() - misses);
+        }
+    }
+    
+    /**
+     * Finds a column, first at its index in the previous row, since the rows of a
+     * batch usually share their layout.
+     */
+    private static int find(Row row, String column, int previous) {
+        if (previous >= 0 && previous < row.width() && column.equals(row.getColumn(previous))) {
+            return previous;
+        }
+        return row.find(column);
+    }
+    
+    /**
+     * Folds rows into a state shared by many producer threads. Safe to call
+     * concurrently; take {@link ConcurrentAggregateState#snapshot()} to read or
+     * checkpoint the result and pass it to {@link #finish(List, AggregateState)}.
+     * The rows are aggregated locally and merged into the shared state at once,
+     * so a batch with a malformed value leaves the shared state unchanged.
+     * 
+     * @param rows The rows produced by the calling thread
+     * @param shared The shared state
+     * @throws DirectiveExecutionException If a value cannot be parsed
+     */
+    public void accumulate(List<Row> rows, ConcurrentAggregateState shared) throws DirectiveExecutionException {
+        AggregateState state = new AggregateState();
+        int sizeIndex = -1;
+        int timeIndex = -1;
+        for (Row row : rows) {
+            sizeIndex = find(row, sizeColumn, sizeIndex);
+            timeIndex = find(row, timeColumn, timeIndex);
+            if (sizeIndex != -1 && timeIndex != -1) {
+                String sizeStr = (String) row.getValue(sizeIndex);
+                String timeStr = (String) row.getValue(timeIndex);
+                
+                try {
+                    state.add(parseBytes(sizeStr, row.getCode(sizeIndex), null),
+                              parseNanos(timeStr, row.getCode(timeIndex), null));
+                } catch (SyntaxError e) {
+                    throw parseFailure(sizeStr, timeStr, e);
+                }
+            }
+            state.advance();
+        }
+        shared.merge(state);
+    }
+    
+    /**
+     * Computes the result from the aggregated state and adds it to the rows.
+     * 
+     * @param rows The rows to annotate
+     * @param state The aggregated state
+     * @return The processed rows
+     * @throws DirectiveExecutionException If nothing was aggregated or the units are invalid
+     */
+    public List<Row> finish(List<Row> rows, AggregateState state) throws DirectiveExecutionException {
+        long rowCount = state.getCount();
         if (rowCount == 0) {
             throw new DirectiveExecutionException("No valid rows found for aggregation");
         }
         
-        // Calculate the result based on the operation
-        double resultBytes = "average".equals(operation) ? totalBytes / rowCount : totalBytes;
-        double resultNanos = "average".equals(operation) ? totalNanos / rowCount : totalNanos;
-        
-        // Convert to requested units
-        double sizeConverted;
-        double timeConverted;
-        
+        double[] sizeValues = new double[statistics.length];
+        double[] timeValues = new double[statistics.length];
         try {
             ByteSize dummySize = new ByteSize("1B");
             TimeDuration dummyTime = new TimeDuration("1ns");
-            
-            sizeConverted = dummySize.convertFromBytes(resultBytes, sizeUnit);
-            timeConverted = dummyTime.convertFromNanos(resultNanos, timeUnit);
+            for (int i = 0; i < statistics.length; i++) {
+                double bytes;
+                double nanos;
+                switch (statistics[i]) {
+                    case COUNT:
+                        continue;
+                    case SUM:
+                        bytes = state.getTotalBytes();
+                        nanos = state.getTotalNanos();
+                        break;
+                    case MEAN:
+                        bytes = state.getTotalBytes() / rowCount;
+                        nanos = state.getTotalNanos() / rowCount;
+                        break;
+                    case MIN:
+                        bytes = state.getMinBytes();
+                        nanos = state.getMinNanos();
+                        break;
+                    case MAX:
+                        bytes = state.getMaxBytes();
+                        nanos = state.getMaxNanos();
+                        break;
+                    default:
+                        // The deviation converts like the values; the variance is its square
+                        bytes = Math.sqrt(state.getBytesVariance());
+                        nanos = Math.sqrt(state.getNanosVariance());
+                        break;
+                }
+                sizeValues[i] = dummySize.convertFromBytes(bytes, sizeUnit);
+                timeValues[i] = dummyTime.convertFromNanos(nanos, timeUnit);
+                if (statistics[i] == Statistic.VARIANCE) {
+                    sizeValues[i] *= sizeValues[i];
+                    timeValues[i] *= timeValues[i];
+                }
+            }
         } catch (SyntaxError e) {
             throw new DirectiveExecutionException(
                 "Error converting to specified units: " + e.getMessage());
         }
         
         // Add the results to each row
+        Long count = rowCount;
         for (Row row : rows) {
-            row.add(sizeOutputColumn, sizeConverted);
-            row.add(timeOutputColumn, timeConverted);
+            for (int i = 0; i < statistics.length; i++) {
+                if (statistics[i] == Statistic.COUNT) {
+                    row.add(sizeOutputs[i], count);
+                    row.add(timeOutputs[i], count);
+                } else {
+                    row.setDouble(sizeOutputs[i], sizeValues[i]);
+                    row.setDouble(timeOutputs[i], timeValues[i]);
+                }
+            }
         }
         
         return rows;
     }
+    
+    /**
+     * Records which of the two values failed to parse and wraps the error.
+     */
+    private DirectiveExecutionException parseFailure(String sizeStr, String timeStr, SyntaxError e) {
+        if (Double.isNaN(UnitParser.parse(sizeStr, UnitParser.Kind.BYTE_SIZE))) {
+            ValueParseFailureEvent.record("aggregate-stats", sizeColumn, sizeStr);
+        } else {
+            ValueParseFailureEvent.record("aggregate-stats", timeColumn, timeStr);
+        }
+        return new DirectiveExecutionException("Error parsing value: " + e.getMessage());
+    }
+    
+    /**
+     * Parses a byte size without allocating, once per dictionary code, or through
+     * the memo if one is given and the value has no code. Malformed values go
+     * through {@link ByteSize} so that they are reported with its error message.
+     */
+    private double parseBytes(String value, int code, ParseMemo memo) throws SyntaxError {
+        double bytes = memo != null && code == Dictionary.NONE
+            ? memo.parse(value) : sizes.parse(value, code);
+        return Double.isNaN(bytes) ? (double) new ByteSize(value).value() : bytes;
+    }
+    
+    /**
+     * Parses a time duration like {@link #parseBytes(String, int, ParseMemo)}. Malformed
+     * values go through {@link TimeDuration} so that they are reported with its error message.
+     */
+    private double parseNanos(String value, int code, ParseMemo memo) throws SyntaxError {
+        double nanos = memo != null && code == Dictionary.NONE
+            ? memo.parse(value) : durations.parse(value, code);
+        return Double.isNaN(nanos) ? (double) new TimeDuration(value).value() : nanos;
+    }
 }
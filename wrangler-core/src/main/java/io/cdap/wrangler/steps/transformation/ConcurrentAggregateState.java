@@ -0,0 +1,227 @@
+package io.cdap.wrangler.steps.transformation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Aggregation state of the aggregate-stats directive that many threads can update at once.
+ * 
+ * Every thread that updates the state gets a cell of its own, holding an
+ * {@link AggregateState} that only that thread writes. Updates therefore take no
+ * lock and no compare-and-set, and never wait for other threads. The cell and every
+ * object of its state are padded to a full cache line, so cells of different
+ * threads never share one, however the heap is laid out.
+ * 
+ * {@link #snapshot()} merges the cells without blocking their owners. Each cell is
+ * read under a sequence number, as with a seqlock: the owner makes it odd while it
+ * updates the cell, and a reader retries until it copies the cell between updates.
+ * When the owner keeps updating, the reader instead asks it for a copy, which the
+ * owner takes after its next update. Like {@code LongAdder.sum()}, a snapshot is
+ * not an atomic view while updates are in flight, but once producers are done it
+ * holds every update.
+ */
+public class ConcurrentAggregateState {
+    private static final VarHandle VERSION;
+    // Optimistic reads of a busy cell before asking its owner for a copy
+    private static final int READ_ATTEMPTS = 64;
+    
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(Cell.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    /**
+     * An exact sum padded to a full cache line. Subclass fields are laid out after
+     * those of the superclass, so the padding separates it from the next object.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedSum extends ExactSum {
+        private long p1;
+        private long p2;
+        private long p3;
+        private long p4;
+        private long p5;
+        private long p6;
+        private long p7;
+    }
+    
+    /**
+     * Moments padded to a full cache line.
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedMoments extends Moments {
+        private long p1;
+        private long p2;
+        private long p3;
+        private long p4;
+        private long p5;
+        private long p6;
+        private long p7;
+    }
+    
+    /**
+     * The state of one thread, with its sequence number, padded to a full cache line.
+     */
+    @SuppressWarnings("unused")
+    private static final class Cell extends AggregateState {
+        // Odd while the owner updates the state
+        private long version;
+        private volatile boolean requested;
+        private volatile AggregateState copy;
+        private long p1;
+        private long p2;
+        private long p3;
+        private long p4;
+        private long p5;
+        private long p6;
+        private long p7;
+        
+        Cell() {
+            super(new PaddedSum(), new PaddedSum(), new PaddedMoments(), new PaddedMoments(), 0, 0);
+        }
+        
+        void begin() {
+            VERSION.setOpaque(this, version + 1);
+            VarHandle.storeStoreFence();
+        }
+        
+        void end() {
+            VERSION.setRelease(this, version + 1);
+            if (requested) {
+                requested = false;
+                copy = snapshot();
+            }
+        }
+        
+        /**
+         * Copies the state between two updates of the owner.
+         * 
+         * @return The copy, or null if the owner kept updating the cell
+         */
+        AggregateState tryRead() {
+            for (int attempt = 0; attempt < READ_ATTEMPTS; attempt++) {
+                long before = (long) VERSION.getAcquire(this);
+                if ((before & 1) == 0) {
+                    // Fields may change under the copy; it is only kept if the version did not
+                    AggregateState result = snapshot();
+                    VarHandle.loadLoadFence();
+                    if ((long) VERSION.getOpaque(this) == before) {
+                        return result;
+                    }
+                }
+                Thread.onSpinWait();
+            }
+            return null;
+        }
+        
+        /**
+         * Asks the owner for a copy after its next update.
+         */
+        void request() {
+            copy = null;
+            requested = true;
+        }
+        
+        /**
+         * Waits for the copy asked for, or for the owner to stop updating the cell.
+         */
+        AggregateState await() {
+            while (true) {
+                AggregateState result = copy;
+                if (result == null) {
+                    result = tryRead();
+                }
+                if (result != null) {
+                    return result;
+                }
+                // Let the owner run when threads outnumber cores
+                Thread.yield();
+            }
+        }
+    }
+    
+    private final List<Cell> cells = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Cell> local = ThreadLocal.withInitial(() -> {
+        // Created by its owner, so that its objects are allocated together
+        Cell cell = new Cell();
+        cells.add(cell);
+        return cell;
+    });
+    
+    /**
+     * Adds one aggregated value pair and marks its record as consumed.
+     * 
+     * @param bytes The size in bytes
+     * @param nanos The duration in nanoseconds
+     */
+    public void add(double bytes, double nanos) {
+        Cell cell = local.get();
+        cell.begin();
+        try {
+            cell.add(bytes, nanos);
+            cell.advance();
+        } finally {
+            cell.end();
+        }
+    }
+    
+    /**
+     * Marks one input record as consumed without contributing a value.
+     */
+    public void advance() {
+        Cell cell = local.get();
+        cell.begin();
+        try {
+            cell.advance();
+        } finally {
+            cell.end();
+        }
+    }
+    
+    /**
+     * Merges a state built by the calling thread, e.g. over one batch, into the cell
+     * of that thread at once.
+     * 
+     * @param partial The state to merge; its offset counts as consumed records
+     */
+    public void merge(AggregateState partial) {
+        Cell cell = local.get();
+        cell.begin();
+        try {
+            cell.merge(partial);
+        } finally {
+            cell.end();
+        }
+    }
+    
+    /**
+     * Merges the cells into a new state, without blocking the threads
+     * that update them.
+     * 
+     * @return The snapshot; its offset is the number of records consumed
+     */
+    public AggregateState snapshot() {
+        AggregateState result = new AggregateState();
+        // Ask all busy owners at once, so that a preempted owner is waited for only once
+        List<Cell> busy = new ArrayList<>();
+        for (Cell cell : cells) {
+            AggregateState copy = cell.tryRead();
+            if (copy == null) {
+                cell.request();
+                busy.add(cell);
+            } else {
+                result.merge(copy);
+            }
+        }
+        for (Cell cell : busy) {
+            result.merge(cell.await());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+import io.cdap.wrangler.sketch.HyperLogLog;
+
+import java.util.List;
+
+/**
+ * A directive for estimating the number of distinct values in a column using HyperLogLog.
+ */
+public class DistinctCount implements Directive {
+    
+    private final String column;
+    private final String outputColumn;
+    private final int precision;
+    
+    /**
+     * Constructor for the DistinctCount directive.
+     * 
+     * @param column Column whose distinct values are counted
+     * @param outputColumn Output column for the estimated count
+     * @param precision HyperLogLog precision (4 to 18), trading memory for accuracy
+     */
+    @DirectiveBinding("distinct-count")
+    public DistinctCount(String column, String outputColumn, Optional<Integer> precision) {
+        this.column = column;
+        this.outputColumn = outputColumn;
+        this.precision = precision.isPresent() ? precision.get() : HyperLogLog.DEFAULT_PRECISION;
+    }
+    
+    /**
+     * Defines the usage of the directive.
+     * 
+     * @return The usage definition
+     */
+    public static UsageDefinition usage() {
+        return UsageDefinition.builder("distinct-count")
+            .define("column", TokenType.COLUMN)
+            .define("output", TokenType.TEXT)
+            .define("precision", TokenType.NUMERIC, Optional.of(HyperLogLog.DEFAULT_PRECISION))
+            .build();
+    }
+    
+    /**
+     * Executes the directive on the rows.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @return The processed rows
+     * @throws DirectiveExecutionException If an error occurs during execution
+     */
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context)
+        throws DirectiveExecutionException {
+        MemoryBudget budget = context.getMemoryBudget();
+        long bytes = estimateBytes();
+        budget.reserve(bytes);
+        try {
+            HyperLogLog sketch = newSketch();
+            accumulate(rows, sketch);
+            return finish(rows, sketch);
+        } finally {
+            budget.release(bytes);
+        }
+    }
+    
+    /**
+     * Estimates the heap size of a sketch with the precision of this directive.
+     * 
+     * @return The estimated size in bytes
+     */
+    public long estimateBytes() {
+        return (1L << precision) + 64;
+    }
+    
+    /**
+     * Creates an empty sketch with the precision of this directive.
+     * 
+     * @return The sketch
+     * @throws DirectiveExecutionException If the precision is out of range
+     */
+    public HyperLogLog newSketch() throws DirectiveExecutionException {
+        try {
+            return new HyperLogLog(precision);
+        } catch (IllegalArgumentException e) {
+            throw new DirectiveExecutionException(e.getMessage());
+        }
+    }
+    
+    /**
+     * Adds the values of the rows to a sketch. Sketches built over separate
+     * batches can be combined with {@link HyperLogLog#merge(HyperLogLog)}.
+     * 
+     * @param rows The rows
+     * @param sketch The sketch to add to
+     */
+    public void accumulate(List<Row> rows, HyperLogLog sketch) {
+        for (Row row : rows) {
+            Object value = row.getValue(column);
+            if (value != null) {
+                sketch.add(value.toString());
+            }
+        }
+    }
+    
+    /**
+     * Adds the estimated count to the rows.
+     * 
+     * @param rows The rows to annotate
+     * @param sketch The sketch
+     * @return The processed rows
+     */
+    public List<Row> finish(List<Row> rows, HyperLogLog sketch) {
+        long estimate = sketch.estimate();
+        for (Row row : rows) {
+            row.add(outputColumn, estimate);
+        }
+        return rows;
+    }
+}
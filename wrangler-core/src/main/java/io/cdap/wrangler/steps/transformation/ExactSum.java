@@ -0,0 +1,231 @@
+package io.cdap.wrangler.steps.transformation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A sum of doubles kept as a 192-bit fixed-point number with 64 fraction bits.
+ * 
+ * Every value is converted to fixed point on its own and the additions are integer
+ * additions, so the sum does not depend on the order in which values are added or
+ * partial sums are merged. Digits below 2^-64 are dropped, which is far below the
+ * precision of sizes and durations. Values of 2^127 or more in magnitude, which do
+ * not fit, and infinities and NaN are summed apart in a plain double, like a double
+ * sum would; only that part of the sum depends on the order of the additions.
+ * 
+ * Values between 2^-11 and 2^53 in magnitude, which covers sizes and durations,
+ * are exact multiples of 2^-64. They are first added to a 128-bit accumulator of a
+ * whole and a fraction word, and only carried into the wide words when the whole
+ * part nears overflow. Integers, such as sizes in bytes and durations in
+ * nanoseconds, thus cost one {@code long} addition, and other values a few
+ * instructions, instead of a 192-bit addition.
+ */
+class ExactSum {
+    private static final int FRACTION_BITS = 64;
+    private static final int MAX_SHIFT = 192 - 53 - 1;
+    private static final long MAX_WHOLE = 1L << 53;
+    private static final double MIN_FAST = 0x1p-11;
+    private static final double MAX_FAST = 0x1p53;
+    private static final long MAX_PENDING = 1L << 62;
+    
+    // Little-endian words of a two's complement number; only the top word is signed
+    private long low;
+    private long middle;
+    private long high;
+    // Sum not yet carried into the words: a signed whole part, below 2^62 + 2^53 in
+    // magnitude, and an unsigned fraction in units of 2^-64
+    private long pendingWhole;
+    private long pendingFraction;
+    // Values beyond the fixed-point range
+    private double overflow;
+    
+    ExactSum() {
+    }
+    
+    ExactSum(ExactSum other) {
+        this.low = other.low;
+        this.middle = other.middle;
+        this.high = other.high;
+        this.pendingWhole = other.pendingWhole;
+        this.pendingFraction = other.pendingFraction;
+        this.overflow = other.overflow;
+    }
+    
+    void add(double value) {
+        long whole = (long) value;
+        if (whole == value && whole <= MAX_WHOLE && whole >= -MAX_WHOLE) {
+            pendingWhole += whole;
+            if (pendingWhole >= MAX_PENDING || pendingWhole <= -MAX_PENDING) {
+                carry();
+            }
+            return;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude >= MIN_FAST && magnitude <= MAX_FAST) {
+            // The floor and the remainder in [0, 1) are exact, and so is taking the
+            // remainder apart 32 bits at a time; no step branches on the data
+            double floor = Math.floor(value);
+            double upper = (value - floor) * 0x1p32;
+            long upperBits = (long) upper;
+            long fraction = upperBits << 32 | (long) ((upper - upperBits) * 0x1p32);
+            long sum = pendingFraction + fraction;
+            long carry = ((pendingFraction & fraction) | ((pendingFraction | fraction) & ~sum)) >>> 63;
+            pendingWhole += (long) floor + carry;
+            pendingFraction = sum;
+            if (pendingWhole >= MAX_PENDING || pendingWhole <= -MAX_PENDING) {
+                carry();
+            }
+            return;
+        }
+        addWide(value);
+    }
+    
+    // Kept apart so that the fast path above stays small enough to inline
+    private void addWide(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        int exponent = (int) ((bits >>> 52) & 0x7ff);
+        long mantissa = (bits & 0xfffffffffffffL) | (1L << 52);
+        // |value| * 2^64 == mantissa * 2^shift
+        int shift = exponent - 1075 + FRACTION_BITS;
+        if (shift > MAX_SHIFT) {
+            // Also covers infinities and NaN, whose exponent is all ones
+            overflow += value;
+            return;
+        }
+        if (exponent == 0 || shift <= -53) {
+            return;
+        }
+        long w0 = 0;
+        long w1 = 0;
+        long w2 = 0;
+        if (shift < 0) {
+            w0 = mantissa >>> -shift;
+        } else {
+            int bit = shift & 63;
+            long lower = mantissa << bit;
+            long upper = bit == 0 ? 0 : mantissa >>> (64 - bit);
+            switch (shift >>> 6) {
+                case 0:
+                    w0 = lower;
+                    w1 = upper;
+                    break;
+                case 1:
+                    w1 = lower;
+                    w2 = upper;
+                    break;
+                default:
+                    w2 = lower;
+                    break;
+            }
+        }
+        if (value > 0) {
+            add(w0, w1, w2);
+        } else {
+            add(~w0, ~w1, ~w2);
+            add(1, 0, 0);
+        }
+    }
+    
+    void add(ExactSum other) {
+        add(other.low, other.middle, other.high);
+        add(other.pendingFraction, other.pendingWhole, other.pendingWhole >> 63);
+        overflow += other.overflow;
+    }
+    
+    private void carry() {
+        add(pendingFraction, pendingWhole, pendingWhole >> 63);
+        pendingWhole = 0;
+        pendingFraction = 0;
+    }
+    
+    private void add(long w0, long w1, long w2) {
+        long sum0 = low + w0;
+        long carry0 = Long.compareUnsigned(sum0, low) < 0 ? 1 : 0;
+        long partial = middle + w1;
+        long carry1 = Long.compareUnsigned(partial, middle) < 0 ? 1 : 0;
+        long sum1 = partial + carry0;
+        if (carry0 == 1 && sum1 == 0) {
+            carry1 = 1;
+        }
+        low = sum0;
+        middle = sum1;
+        high += w2 + carry1;
+    }
+    
+    /**
+     * Converts the sum to the nearest double, rounding half to even. Values beyond
+     * the fixed-point range are then added in floating point.
+     */
+    double doubleValue() {
+        return fixedValue() + overflow;
+    }
+    
+    private double fixedValue() {
+        if (high == 0 && low == 0 && middle == 0 && pendingFraction == 0) {
+            return pendingWhole;
+        }
+        ExactSum sum = new ExactSum(this);
+        sum.carry();
+        long w0 = sum.low;
+        long w1 = sum.middle;
+        long w2 = sum.high;
+        boolean negative = w2 < 0;
+        if (negative) {
+            w0 = -w0;
+            w1 = ~w1 + (w0 == 0 ? 1 : 0);
+            w2 = ~w2 + (w0 == 0 && w1 == 0 ? 1 : 0);
+        }
+        long top;
+        long next;
+        long rest;
+        int base;
+        if (w2 != 0) {
+            top = w2;
+            next = w1;
+            rest = w0;
+            base = 128;
+        } else if (w1 != 0) {
+            top = w1;
+            next = w0;
+            rest = 0;
+            base = 64;
+        } else if (w0 != 0) {
+            top = w0;
+            next = 0;
+            rest = 0;
+            base = 0;
+        } else {
+            return 0;
+        }
+        // Align the leading 64 bits and note whether any bit below them is set
+        int zeros = Long.numberOfLeadingZeros(top);
+        long bits = zeros == 0 ? top : (top << zeros) | (next >>> (64 - zeros));
+        boolean sticky = (zeros == 0 ? next : next << zeros) != 0 || rest != 0;
+        long mantissa = bits >>> 11;
+        long remainder = bits & 0x7ff;
+        if (remainder > 0x400 || (remainder == 0x400 && (sticky || (mantissa & 1) == 1))) {
+            mantissa++;
+        }
+        double value = Math.scalb((double) mantissa, base + 63 - zeros - 52 - FRACTION_BITS);
+        return negative ? -value : value;
+    }
+    
+    void write(DataOutput out) throws IOException {
+        ExactSum sum = new ExactSum(this);
+        sum.carry();
+        out.writeLong(sum.low);
+        out.writeLong(sum.middle);
+        out.writeLong(sum.high);
+        out.writeDouble(overflow);
+    }
+    
+    static ExactSum read(DataInput in) throws IOException {
+        ExactSum sum = new ExactSum();
+        sum.low = in.readLong();
+        sum.middle = in.readLong();
+        sum.high = in.readLong();
+        sum.overflow = in.readDouble();
+        return sum;
+    }
+}
@@ -0,0 +1,89 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+import io.cdap.wrangler.units.ParsedValueCache;
+import io.cdap.wrangler.units.UnitPredicate;
+
+import java.util.List;
+
+/**
+ * A directive for keeping rows whose byte size column satisfies a comparison,
+ * e.g. {@code filter-size :size > 5MB}. Rows without the column are dropped.
+ * 
+ * The predicate can also be pushed down to a source through {@link #getPredicate()},
+ * so that non-matching records are skipped before they are materialized.
+ */
+public class FilterSize implements Directive {
+    
+    private final String column;
+    private final UnitPredicate predicate;
+    private final ParsedValueCache parsed;
+    
+    /**
+     * Constructor for the FilterSize directive.
+     * 
+     * @param column Column containing byte size values
+     * @param operator Comparison operator (>, >=, <, <=, ==, !=)
+     * @param threshold Threshold to compare against
+     * @throws DirectiveParseException If the operator is invalid
+     */
+    @DirectiveBinding("filter-size")
+    public FilterSize(String column, String operator, ByteSize threshold) throws DirectiveParseException {
+        this.column = column;
+        this.predicate = UnitPredicate.of(operator, threshold);
+        this.parsed = new ParsedValueCache(predicate.getKind());
+    }
+    
+    /**
+     * Defines the usage of the directive.
+     * 
+     * @return The usage definition
+     */
+    public static UsageDefinition usage() {
+        return UsageDefinition.builder("filter-size")
+            .define("column", TokenType.COLUMN)
+            .define("operator", TokenType.TEXT)
+            .define("threshold", TokenType.BYTE_SIZE)
+            .build();
+    }
+    
+    /**
+     * Gets the filtered column.
+     * 
+     * @return The column name
+     */
+    public String getColumn() {
+        return column;
+    }
+    
+    /**
+     * Gets the predicate applied to the column.
+     * 
+     * @return The predicate
+     */
+    public UnitPredicate getPredicate() {
+        return predicate;
+    }
+    
+    /**
+     * Executes the filter directive on the rows.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @return The rows satisfying the comparison
+     * @throws DirectiveExecutionException If a value cannot be parsed
+     */
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context)
+        throws DirectiveExecutionException {
+        return Filtering.filter(rows, "filter-size", column, predicate, parsed);
+    }
+}
@@ -0,0 +1,46 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.jfr.ValueParseFailureEvent;
+import io.cdap.wrangler.units.ParsedValueCache;
+import io.cdap.wrangler.units.UnitParser;
+import io.cdap.wrangler.units.UnitPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared implementation of the filter-size and filter-duration directives.
+ */
+final class Filtering {
+    
+    private Filtering() {
+    }
+    
+    static List<Row> filter(List<Row> rows, String name, String column, UnitPredicate predicate,
+                            ParsedValueCache parsed) throws DirectiveExecutionException {
+        List<Row> results = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            int index = row.find(column);
+            Object value = index < 0 ? null : row.getValue(index);
+            if (value == null) {
+                continue;
+            }
+            double normalized = parsed.parse(value, row.getCode(index));
+            if (Double.isNaN(normalized)) {
+                ValueParseFailureEvent.record(name, column, value);
+                throw new DirectiveExecutionException("Error parsing value: Invalid "
+                    + describe(predicate.getKind()) + ": " + value);
+            }
+            if (predicate.test(normalized)) {
+                results.add(row);
+            }
+        }
+        return results;
+    }
+    
+    private static String describe(UnitParser.Kind kind) {
+        return kind == UnitParser.Kind.BYTE_SIZE ? "byte size" : "time duration";
+    }
+}
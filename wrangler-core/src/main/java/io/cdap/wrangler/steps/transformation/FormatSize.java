@@ -0,0 +1,70 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+import io.cdap.wrangler.units.UnitFormatter;
+import io.cdap.wrangler.units.UnitParser;
+
+import java.util.List;
+
+/**
+ * A directive for formatting a size in bytes as a human-readable string,
+ * e.g. {@code format-size :total_bytes total_size 1} turns 1610612736 into {@code 1.5GB}.
+ * Rows without the column are left unchanged.
+ */
+public class FormatSize implements Directive {
+    
+    private final String column;
+    private final String outputColumn;
+    private final UnitFormatter formatter;
+    
+    /**
+     * Constructor for the FormatSize directive.
+     * 
+     * @param column Column containing sizes in bytes
+     * @param outputColumn Output column for the formatted size
+     * @param precision Maximum number of fraction digits (0 to 9)
+     * @throws DirectiveParseException If the precision is out of range
+     */
+    @DirectiveBinding("format-size")
+    public FormatSize(String column, String outputColumn, Optional<Integer> precision)
+        throws DirectiveParseException {
+        this.column = column;
+        this.outputColumn = outputColumn;
+        this.formatter = Formatting.formatter(UnitParser.Kind.BYTE_SIZE, precision);
+    }
+    
+    /**
+     * Defines the usage of the directive.
+     * 
+     * @return The usage definition
+     */
+    public static UsageDefinition usage() {
+        return UsageDefinition.builder("format-size")
+            .define("column", TokenType.COLUMN)
+            .define("output", TokenType.TEXT)
+            .define("precision", TokenType.NUMERIC, Optional.of(Formatting.DEFAULT_PRECISION))
+            .build();
+    }
+    
+    /**
+     * Executes the directive on the rows.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @return The processed rows
+     * @throws DirectiveExecutionException If a value is not a number
+     */
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context)
+        throws DirectiveExecutionException {
+        return Formatting.format(rows, column, outputColumn, formatter);
+    }
+}
@@ -0,0 +1,68 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.jfr.CacheStatisticsEvent;
+import io.cdap.wrangler.units.UnitFormatter;
+import io.cdap.wrangler.units.UnitParser;
+
+import java.util.List;
+
+/**
+ * Shared implementation of the format-size and format-duration directives.
+ */
+final class Formatting {
+    static final int DEFAULT_PRECISION = 2;
+    
+    private Formatting() {
+    }
+    
+    static UnitFormatter formatter(UnitParser.Kind kind, Optional<Integer> precision)
+        throws DirectiveParseException {
+        int digits = precision.isPresent() ? precision.get() : DEFAULT_PRECISION;
+        if (digits < 0 || digits > UnitFormatter.MAX_PRECISION) {
+            throw new DirectiveParseException(
+                "Precision must be between 0 and " + UnitFormatter.MAX_PRECISION + ": " + digits);
+        }
+        return new UnitFormatter(kind, digits);
+    }
+    
+    static List<Row> format(List<Row> rows, String column, String outputColumn, UnitFormatter formatter)
+        throws DirectiveExecutionException {
+        long hits = formatter.getCacheHits();
+        long misses = formatter.getCacheMisses();
+        try {
+            return formatRows(rows, column, outputColumn, formatter);
+        } finally {
+            CacheStatisticsEvent.record("unit-formatter", formatter.getCacheHits() - hits,
+                                        formatter.getCacheMisses() - misses);
+        }
+    }
+    
+    private static List<Row> formatRows(List<Row> rows, String column, String outputColumn,
+                                        UnitFormatter formatter) throws DirectiveExecutionException {
+        for (Row row : rows) {
+            int index = row.find(column);
+            if (index < 0) {
+                continue;
+            }
+            // Numbers are read unboxed; strings of digits are accepted as well
+            double value = row.getDouble(index);
+            if (Double.isNaN(value) && !row.isDouble(index)) {
+                Object raw = row.getValue(index);
+                if (raw == null) {
+                    continue;
+                }
+                try {
+                    value = Double.parseDouble(raw.toString());
+                } catch (NumberFormatException e) {
+                    throw new DirectiveExecutionException("Error formatting value: Not a number: " + raw);
+                }
+            }
+            row.add(outputColumn, formatter.format(value));
+        }
+        return rows;
+    }
+}
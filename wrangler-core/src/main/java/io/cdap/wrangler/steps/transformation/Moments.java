@@ -0,0 +1,104 @@
+package io.cdap.wrangler.steps.transformation;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running mean, sum of squared deviations, minimum and maximum of one column,
+ * updated with Welford's algorithm so that the variance stays accurate when the
+ * values are large compared to their spread.
+ * 
+ * The count is kept by the owning state and passed in.
+ */
+class Moments {
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    
+    Moments() {
+    }
+    
+    private Moments(double mean, double m2, double min, double max) {
+        this.mean = mean;
+        this.m2 = m2;
+        this.min = min;
+        this.max = max;
+    }
+    
+    Moments(Moments other) {
+        this(other.mean, other.m2, other.min, other.max);
+    }
+    
+    /**
+     * Adds a value.
+     * 
+     * @param value The value
+     * @param inverse One over the count including this value
+     */
+    void add(double value, double inverse) {
+        double delta = value - mean;
+        mean += delta * inverse;
+        m2 += delta * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+    
+    /**
+     * Merges the moments of another set of values, using the pairwise update of
+     * Chan, Golub and LeVeque.
+     * 
+     * @param count The number of values in this set
+     * @param other The other moments
+     * @param otherCount The number of values in the other set
+     */
+    void merge(long count, Moments other, long otherCount) {
+        if (otherCount == 0) {
+            return;
+        }
+        if (count == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+            min = other.min;
+            max = other.max;
+            return;
+        }
+        double total = (double) count + otherCount;
+        double delta = other.mean - mean;
+        mean += delta * (otherCount / total);
+        m2 += other.m2 + delta * delta * ((double) count * otherCount / total);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+    
+    /**
+     * Gets the sample variance, 0 for a single value.
+     */
+    double getVariance(long count) {
+        return count < 2 ? 0 : Math.max(0, m2 / (count - 1));
+    }
+    
+    double getMin() {
+        return min;
+    }
+    
+    double getMax() {
+        return max;
+    }
+    
+    void write(DataOutput out) throws IOException {
+        out.writeDouble(mean);
+        out.writeDouble(m2);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+    
+    static Moments read(DataInput in) throws IOException {
+        return new Moments(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+}
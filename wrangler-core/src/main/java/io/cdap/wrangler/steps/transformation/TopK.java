@@ -0,0 +1,222 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.annotations.DirectiveBinding;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import io.cdap.wrangler.api.parser.TokenType;
+import io.cdap.wrangler.api.parser.UsageDefinition;
+import io.cdap.wrangler.jfr.ValueParseFailureEvent;
+import io.cdap.wrangler.sketch.SpaceSaving;
+import io.cdap.wrangler.units.UnitParser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A directive for finding the keys with the largest total byte size or time duration.
+ * 
+ * Uses a weighted Space-Saving sketch, so memory is bounded by the number of
+ * counters regardless of the number of distinct keys. The output unit decides
+ * whether the weight column is parsed as a byte size or a time duration.
+ */
+public class TopK implements Directive {
+    
+    private final String keyColumn;
+    private final String weightColumn;
+    private final String outputColumn;
+    private final int k;
+    private final String unit;
+    private final boolean byteUnit;
+    private final int capacity;
+    
+    /**
+     * Constructor for the TopK directive.
+     * 
+     * @param keyColumn Column containing the keys
+     * @param weightColumn Column containing byte size or time duration values
+     * @param outputColumn Output column for the aggregated weight
+     * @param k Number of keys to report
+     * @param unit Output unit (B, KB, MB, GB, TB, PB or ns, µs, ms, s, m, h, d)
+     * @param capacity Number of counters kept; more counters give tighter error bounds
+     * @throws DirectiveParseException If the default capacity of {@code 10 * k} overflows
+     */
+    @DirectiveBinding("top-k")
+    public TopK(String keyColumn, String weightColumn, String outputColumn, int k,
+                Optional<String> unit, Optional<Integer> capacity) throws DirectiveParseException {
+        this.keyColumn = keyColumn;
+        this.weightColumn = weightColumn;
+        this.outputColumn = outputColumn;
+        this.k = k;
+        String outputUnit = unit.isPresent() ? unit.get() : "B";
+        this.byteUnit = isByteUnit(outputUnit);
+        this.unit = byteUnit ? outputUnit.toUpperCase() : outputUnit.toLowerCase();
+        this.capacity = capacity.isPresent() ? capacity.get() : defaultCapacity(k);
+    }
+    
+    private static int defaultCapacity(int k) throws DirectiveParseException {
+        try {
+            return Math.multiplyExact(k, 10);
+        } catch (ArithmeticException e) {
+            throw new DirectiveParseException("Top-k size " + k + " is too large");
+        }
+    }
+    
+    /**
+     * Defines the usage of the directive.
+     * 
+     * @return The usage definition
+     */
+    public static UsageDefinition usage() {
+        return UsageDefinition.builder("top-k")
+            .define("key_column", TokenType.COLUMN)
+            .define("weight_column", TokenType.COLUMN)
+            .define("output", TokenType.TEXT)
+            .define("k", TokenType.NUMERIC)
+            .define("unit", TokenType.TEXT, Optional.of("B"))
+            .define("capacity", TokenType.NUMERIC, Optional.of(null))
+            .build();
+    }
+    
+    /**
+     * Executes the directive on the rows.
+     * 
+     * @param rows The input rows
+     * @param context The execution context
+     * @return One row per heavy hitter, heaviest first, with the key, the weight
+     *         in the output unit, and the error bound of the weight
+     * @throws DirectiveExecutionException If an error occurs during execution
+     */
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context)
+        throws DirectiveExecutionException {
+        MemoryBudget budget = context.getMemoryBudget();
+        long bytes = estimateBytes();
+        // Reserve before allocating, so that a sketch over the budget is never built
+        budget.reserve(bytes);
+        try {
+            SpaceSaving sketch = newSketch();
+            accumulate(rows, sketch);
+            return finish(sketch);
+        } finally {
+            budget.release(bytes);
+        }
+    }
+    
+    /**
+     * Estimates the heap size of a full sketch with the capacity of this directive,
+     * counting the counter, its map entry and a short key for every slot.
+     * 
+     * @return The estimated size in bytes
+     */
+    public long estimateBytes() {
+        return 64 + capacity * 160L;
+    }
+    
+    /**
+     * Creates an empty sketch with the capacity of this directive.
+     * 
+     * @return The sketch
+     * @throws DirectiveExecutionException If the capacity is invalid
+     */
+    public SpaceSaving newSketch() throws DirectiveExecutionException {
+        if (k <= 0 || capacity < k) {
+            throw new DirectiveExecutionException(
+                "Invalid top-k size " + k + " with capacity " + capacity);
+        }
+        return new SpaceSaving(capacity);
+    }
+    
+    /**
+     * Adds the weights of the rows to a sketch. Sketches built over separate
+     * batches can be combined with {@link SpaceSaving#merge(SpaceSaving)}.
+     * 
+     * @param rows The rows
+     * @param sketch The sketch to add to
+     * @throws DirectiveExecutionException If a weight cannot be parsed
+     */
+    public void accumulate(List<Row> rows, SpaceSaving sketch) throws DirectiveExecutionException {
+        for (Row row : rows) {
+            Object key = row.getValue(keyColumn);
+            Object weight = row.getValue(weightColumn);
+            if (key == null || weight == null) {
+                continue;
+            }
+            try {
+                sketch.add(key.toString(), parse(weight.toString()));
+            } catch (SyntaxError e) {
+                ValueParseFailureEvent.record("top-k", weightColumn, weight);
+                throw new DirectiveExecutionException(
+                    "Error parsing value: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Builds the result rows from a sketch.
+     * 
+     * @param sketch The sketch
+     * @return One row per heavy hitter, heaviest first
+     * @throws DirectiveExecutionException If the output unit is invalid
+     */
+    public List<Row> finish(SpaceSaving sketch) throws DirectiveExecutionException {
+        ByteSize dummySize;
+        TimeDuration dummyTime;
+        try {
+            dummySize = new ByteSize("1B");
+            dummyTime = new TimeDuration("1ns");
+        } catch (SyntaxError e) {
+            throw new DirectiveExecutionException(
+                "Error converting to specified units: " + e.getMessage());
+        }
+        
+        List<Row> result = new ArrayList<>();
+        for (SpaceSaving.Counter counter : sketch.top(k)) {
+            Row row = new Row();
+            row.add(keyColumn, counter.getKey());
+            if (byteUnit) {
+                row.add(outputColumn, dummySize.convertFromBytes(counter.getWeight(), unit));
+                row.add(outputColumn + "_error", dummySize.convertFromBytes(counter.getError(), unit));
+            } else {
+                row.add(outputColumn, dummyTime.convertFromNanos(counter.getWeight(), unit));
+                row.add(outputColumn + "_error", dummyTime.convertFromNanos(counter.getError(), unit));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+    
+    /**
+     * Parses a weight without allocating. Malformed values go through {@link ByteSize}
+     * or {@link TimeDuration} so that they are reported with their error message.
+     */
+    private double parse(String weight) throws SyntaxError {
+        if (byteUnit) {
+            double bytes = UnitParser.parse(weight, UnitParser.Kind.BYTE_SIZE);
+            return Double.isNaN(bytes) ? (double) new ByteSize(weight).value() : bytes;
+        }
+        double nanos = UnitParser.parse(weight, UnitParser.Kind.TIME_DURATION);
+        return Double.isNaN(nanos) ? (double) new TimeDuration(weight).value() : nanos;
+    }
+    
+    private static boolean isByteUnit(String unit) {
+        switch (unit.toUpperCase()) {
+            case "B":
+            case "KB":
+            case "MB":
+            case "GB":
+            case "TB":
+            case "PB":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.cdap.wrangler.units;
+
+/**
+ * Remembers recently parsed sizes or durations by their string, for values that
+ * repeat but carry no dictionary code.
+ * 
+ * A direct-mapped table of {@link #SLOTS} entries: a string whose slot holds
+ * another value replaces it. Lookups compare by identity first, so strings shared
+ * between rows are found without comparing characters. Not thread-safe; use one
+ * memo per thread.
+ */
+public final class ParseMemo {
+    /**
+     * The number of values remembered at most.
+     */
+    public static final int SLOTS = 1024;
+    
+    private final UnitParser.Kind kind;
+    private final String[] keys = new String[SLOTS];
+    private final double[] values = new double[SLOTS];
+    private long hits;
+    private long misses;
+    
+    /**
+     * Creates an empty memo for one kind of value.
+     * 
+     * @param kind The kind of values
+     */
+    public ParseMemo(UnitParser.Kind kind) {
+        this.kind = kind;
+    }
+    
+    /**
+     * Parses a value, or returns the remembered result for an equal string.
+     * 
+     * @param value The value
+     * @return The value in bytes or nanoseconds, or NaN if it is malformed
+     */
+    public double parse(String value) {
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+        String key = keys[slot];
+        if (key == value || value.equals(key)) {
+            hits++;
+            return values[slot];
+        }
+        misses++;
+        double parsed = UnitParser.parse(value, kind);
+        keys[slot] = value;
+        values[slot] = parsed;
+        return parsed;
+    }
+    
+    /**
+     * Gets the number of values answered from the memo.
+     * 
+     * @return The hits
+     */
+    public long getHits() {
+        return hits;
+    }
+    
+    /**
+     * Gets the number of values that were parsed.
+     * 
+     * @return The misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,82 @@
+package io.cdap.wrangler.units;
+
+import io.cdap.wrangler.api.Dictionary;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers parsed sizes or durations by the dictionary code of their string, so
+ * that a value repeated across rows is parsed once.
+ * 
+ * Codes are only unique within one {@link Dictionary}, and rows read with different
+ * dictionaries may pass through the same directive. Each entry therefore keeps the
+ * string it was parsed from, and is only used for that same instance; a dictionary
+ * holds one instance per code, so a code from another dictionary misses and is
+ * parsed again. Values without a code are parsed every time. The cache is
+ * thread-safe; lookups do not lock, and only storing a new entry does.
+ */
+public final class ParsedValueCache {
+    
+    /**
+     * A parsed value and the string it was parsed from.
+     */
+    private static final class Entry {
+        final Object value;
+        final double parsed;
+        
+        Entry(Object value, double parsed) {
+            this.value = value;
+            this.parsed = parsed;
+        }
+    }
+    
+    private final UnitParser.Kind kind;
+    private volatile AtomicReferenceArray<Entry> entries;
+    
+    /**
+     * Creates a cache for one kind of value.
+     * 
+     * @param kind The kind of values
+     */
+    public ParsedValueCache(UnitParser.Kind kind) {
+        this.kind = kind;
+        this.entries = new AtomicReferenceArray<>(0);
+    }
+    
+    /**
+     * Parses a value, or returns the remembered result for its code.
+     * 
+     * @param value The value
+     * @param code The dictionary code of the value, or {@link Dictionary#NONE}
+     * @return The value in bytes or nanoseconds, or NaN if it is malformed
+     */
+    public double parse(Object value, int code) {
+        if (code == Dictionary.NONE) {
+            return UnitParser.parse(value.toString(), kind);
+        }
+        AtomicReferenceArray<Entry> current = entries;
+        if (code < current.length()) {
+            Entry entry = current.get(code);
+            // The same instance, so the same dictionary
+            if (entry != null && entry.value == value) {
+                return entry.parsed;
+            }
+        }
+        double parsed = UnitParser.parse(value.toString(), kind);
+        store(code, new Entry(value, parsed));
+        return parsed;
+    }
+    
+    private synchronized void store(int code, Entry entry) {
+        AtomicReferenceArray<Entry> current = entries;
+        if (code >= current.length()) {
+            AtomicReferenceArray<Entry> grown = new AtomicReferenceArray<>(Math.max(code + 1, current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            entries = grown;
+            current = grown;
+        }
+        current.set(code, entry);
+    }
+}
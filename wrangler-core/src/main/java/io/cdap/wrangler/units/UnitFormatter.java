@@ -0,0 +1,194 @@
+package io.cdap.wrangler.units;
+
+import io.cdap.wrangler.sketch.Hashing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Formats byte sizes and time durations as human-readable strings such as
+ * {@code 1.5GB} or {@code 230ms}.
+ * 
+ * The largest unit in which the value is at least 1 is chosen automatically, and
+ * the value is rounded to at most {@code precision} fraction digits with trailing
+ * zeros dropped. Digits are written straight into a reused {@link StringBuilder},
+ * without {@code String.format} or intermediate objects, and the strings of
+ * recently formatted values are kept in a small direct-mapped cache so that
+ * repeated values cost a lookup. The output can be parsed back by {@link UnitParser}.
+ * 
+ * A formatter is not thread-safe.
+ */
+public final class UnitFormatter {
+    
+    /**
+     * Maximum number of fraction digits.
+     */
+    public static final int MAX_PRECISION = 9;
+    
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+    
+    // Largest rounded value whose digits are exact in a double
+    private static final double MAX_EXACT = 1L << 53;
+    
+    private static final String[] BYTE_UNITS = {"B", "KB", "MB", "GB", "TB", "PB"};
+    private static final double[] BYTE_FACTORS = {
+        1d, 1024d, 1024d * 1024, 1024d * 1024 * 1024, 1024d * 1024 * 1024 * 1024, 1024d * 1024 * 1024 * 1024 * 1024
+    };
+    private static final String[] DURATION_UNITS = {"ns", "us", "ms", "s", "m", "h", "d"};
+    private static final double[] DURATION_FACTORS = {
+        1d, 1e3, 1e6, 1e9, 60 * 1e9, 60 * 60 * 1e9, 24 * 60 * 60 * 1e9
+    };
+    
+    private static final long[] POWERS_OF_TEN = new long[MAX_PRECISION + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    private final String[] units;
+    private final double[] factors;
+    private final int precision;
+    private final long scale;
+    private final StringBuilder buffer;
+    private final long[] cacheKeys;
+    private final String[] cacheValues;
+    private final int cacheMask;
+    private long hits;
+    private long misses;
+    
+    /**
+     * Creates a new UnitFormatter with the default cache size.
+     * 
+     * @param kind The kind of values, in bytes or nanoseconds
+     * @param precision Maximum number of fraction digits, 0 to {@value #MAX_PRECISION}
+     */
+    public UnitFormatter(UnitParser.Kind kind, int precision) {
+        this(kind, precision, DEFAULT_CACHE_SIZE);
+    }
+    
+    /**
+     * Creates a new UnitFormatter.
+     * 
+     * @param kind The kind of values, in bytes or nanoseconds
+     * @param precision Maximum number of fraction digits, 0 to {@value #MAX_PRECISION}
+     * @param cacheSize Number of cached strings, rounded up to a power of two; 0 disables the cache
+     */
+    public UnitFormatter(UnitParser.Kind kind, int precision, int cacheSize) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between 0 and " + MAX_PRECISION + ": " + precision);
+        }
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        boolean bytes = kind == UnitParser.Kind.BYTE_SIZE;
+        this.units = bytes ? BYTE_UNITS : DURATION_UNITS;
+        this.factors = bytes ? BYTE_FACTORS : DURATION_FACTORS;
+        this.precision = precision;
+        this.scale = POWERS_OF_TEN[precision];
+        this.buffer = new StringBuilder(32);
+        int capacity = cacheSize == 0 ? 0 : Integer.highestOneBit(Math.max(1, cacheSize - 1)) << 1;
+        this.cacheKeys = new long[capacity];
+        this.cacheValues = new String[capacity];
+        this.cacheMask = capacity - 1;
+    }
+    
+    /**
+     * Formats a value, returning the cached string if the value was formatted recently.
+     * 
+     * @param value The value in bytes or nanoseconds
+     * @return The formatted value
+     */
+    public String format(double value) {
+        if (cacheValues.length == 0) {
+            return build(value);
+        }
+        long bits = Double.doubleToLongBits(value);
+        int slot = (int) Hashing.mix64(bits) & cacheMask;
+        String cached = cacheValues[slot];
+        if (cached != null && cacheKeys[slot] == bits) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        String formatted = build(value);
+        cacheKeys[slot] = bits;
+        cacheValues[slot] = formatted;
+        return formatted;
+    }
+    
+    /**
+     * Appends a formatted value without allocating.
+     * 
+     * @param value The value in bytes or nanoseconds
+     * @param out The builder to append to
+     */
+    public void formatTo(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(value);
+            return;
+        }
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        int unit = 0;
+        while (unit < factors.length - 1 && value >= factors[unit + 1]) {
+            unit++;
+        }
+        double rounded = Math.rint(value / factors[unit] * scale);
+        // Rounding can carry into the next unit, e.g. 1023.999KB becomes 1MB
+        if (unit < factors.length - 1 && rounded >= Math.rint(factors[unit + 1] / factors[unit] * scale)) {
+            unit++;
+            rounded = Math.rint(value / factors[unit] * scale);
+        }
+        if (rounded >= MAX_EXACT) {
+            // Double.toString would switch to E notation, which the parsers do not accept
+            out.append(BigDecimal.valueOf(value / factors[unit]).setScale(precision, RoundingMode.HALF_EVEN)
+                           .stripTrailingZeros().toPlainString()).append(units[unit]);
+            return;
+        }
+        long digits = (long) rounded;
+        out.append(digits / scale);
+        long fraction = digits % scale;
+        if (fraction != 0) {
+            int width = precision;
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                width--;
+            }
+            out.append('.');
+            for (long bound = POWERS_OF_TEN[width - 1]; bound > fraction; bound /= 10) {
+                out.append('0');
+            }
+            out.append(fraction);
+        }
+        out.append(units[unit]);
+    }
+    
+    /**
+     * Gets the number of values served from the cache.
+     * 
+     * @return The cache hits
+     */
+    public long getCacheHits() {
+        return hits;
+    }
+    
+    /**
+     * Gets the number of values that had to be formatted.
+     * 
+     * @return The cache misses
+     */
+    public long getCacheMisses() {
+        return misses;
+    }
+    
+    private String build(double value) {
+        buffer.setLength(0);
+        formatTo(value, buffer);
+        return buffer.toString();
+    }
+}
@@ -0,0 +1,288 @@
+package io.cdap.wrangler.units;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-free parser for byte size and time duration strings.
+ * 
+ * Accepts the same formats as {@link io.cdap.wrangler.api.parser.ByteSize} and
+ * {@link io.cdap.wrangler.api.parser.TimeDuration} and produces the same values in
+ * the base unit (bytes or nanoseconds), but works directly on a character sequence
+ * or on raw UTF-8 bytes and signals malformed input by returning {@code NaN}
+ * instead of throwing. This makes it usable on hot paths where most values are
+ * only compared against a threshold and then discarded.
+ */
+public final class UnitParser {
+    
+    /**
+     * Kind of value being parsed.
+     */
+    public enum Kind {
+        BYTE_SIZE,
+        TIME_DURATION
+    }
+    
+    // Longer mantissas may exceed 2^53 and are parsed by Double.parseDouble
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+    
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+    
+    // Byte size unit codes, by power of 1024
+    private static final int B = 0;
+    private static final int KB = 1;
+    private static final int MB = 2;
+    private static final int GB = 3;
+    private static final int TB = 4;
+    private static final int PB = 5;
+    
+    // Time duration unit codes
+    private static final int NS = 0;
+    private static final int US = 1;
+    private static final int MS = 2;
+    private static final int S = 3;
+    private static final int M = 4;
+    private static final int H = 5;
+    private static final int D = 6;
+    
+    private UnitParser() {
+    }
+    
+    /**
+     * Parses a value to its base unit.
+     * 
+     * @param value The string to parse
+     * @param kind The kind of value
+     * @return The value in bytes or nanoseconds, or {@code NaN} if it is malformed
+     */
+    public static double parse(CharSequence value, Kind kind) {
+        int i = 0;
+        int end = value.length();
+        while (i < end && value.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        
+        int numberStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        while (i < end) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                }
+                digits++;
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double number = digits > MAX_FAST_DIGITS
+            ? Double.parseDouble(value.subSequence(numberStart, i).toString())
+            : toDouble(mantissa, fraction);
+        
+        while (i < end && value.charAt(i) <= ' ') {
+            i++;
+        }
+        int length = end - i;
+        if (length < 1 || length > 2) {
+            return Double.NaN;
+        }
+        char first = lower(value.charAt(i));
+        char second = length == 2 ? lower(value.charAt(i + 1)) : 0;
+        return toBase(number, first, second, kind);
+    }
+    
+    /**
+     * Parses a value to its base unit from a range of UTF-8 bytes.
+     * 
+     * @param buffer The buffer holding the value
+     * @param from Start of the value, inclusive
+     * @param to End of the value, exclusive
+     * @param kind The kind of value
+     * @return The value in bytes or nanoseconds, or {@code NaN} if it is malformed
+     */
+    public static double parse(byte[] buffer, int from, int to, Kind kind) {
+        int i = from;
+        int end = to;
+        while (i < end && (buffer[i] & 0xff) <= ' ') {
+            i++;
+        }
+        while (end > i && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        
+        int numberStart = i;
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        while (i < end) {
+            byte c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                if (digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                }
+                digits++;
+            } else if (c == '.' && fraction < 0) {
+                fraction = 0;
+            } else {
+                break;
+            }
+            i++;
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        double number = digits > MAX_FAST_DIGITS
+            ? Double.parseDouble(new String(buffer, numberStart, i - numberStart, StandardCharsets.US_ASCII))
+            : toDouble(mantissa, fraction);
+        
+        while (i < end && (buffer[i] & 0xff) <= ' ') {
+            i++;
+        }
+        int length = end - i;
+        char first;
+        char second;
+        if (length == 3 && (buffer[i] & 0xff) == 0xc2 && (buffer[i + 1] & 0xff) == 0xb5) {
+            // µ (U+00B5) encoded as UTF-8
+            first = 'µ';
+            second = lower((char) buffer[i + 2]);
+        } else if (length == 1 || length == 2) {
+            first = lower((char) (buffer[i] & 0xff));
+            second = length == 2 ? lower((char) (buffer[i + 1] & 0xff)) : 0;
+        } else {
+            return Double.NaN;
+        }
+        return toBase(number, first, second, kind);
+    }
+    
+    private static double toDouble(long mantissa, int fraction) {
+        // Both operands are below 2^53 and so exact doubles, hence the division is
+        // correctly rounded and matches Double.parseDouble
+        return fraction > 0 ? mantissa / POWERS_OF_TEN[fraction] : mantissa;
+    }
+    
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    
+    private static double toBase(double number, char first, char second, Kind kind) {
+        int unit = kind == Kind.BYTE_SIZE ? byteUnit(first, second) : timeUnit(first, second);
+        if (unit < 0) {
+            return Double.NaN;
+        }
+        return kind == Kind.BYTE_SIZE ? toBytes(number, unit) : toNanos(number, unit);
+    }
+    
+    private static int byteUnit(char first, char second) {
+        if (second == 0) {
+            return first == 'b' ? B : -1;
+        }
+        if (second != 'b') {
+            return -1;
+        }
+        switch (first) {
+            case 'k':
+                return KB;
+            case 'm':
+                return MB;
+            case 'g':
+                return GB;
+            case 't':
+                return TB;
+            case 'p':
+                return PB;
+            default:
+                return -1;
+        }
+    }
+    
+    private static int timeUnit(char first, char second) {
+        if (second == 0) {
+            switch (first) {
+                case 's':
+                    return S;
+                case 'm':
+                    return M;
+                case 'h':
+                    return H;
+                case 'd':
+                    return D;
+                default:
+                    return -1;
+            }
+        }
+        if (second != 's') {
+            return -1;
+        }
+        switch (first) {
+            case 'n':
+                return NS;
+            case 'u':
+            case 'µ':
+                return US;
+            case 'm':
+                return MS;
+            default:
+                return -1;
+        }
+    }
+    
+    // Mirrors ByteSize so that both parsers produce bit-identical values
+    private static double toBytes(double size, int unit) {
+        switch (unit) {
+            case KB:
+                return size * 1024;
+            case MB:
+                return size * 1024 * 1024;
+            case GB:
+                return size * 1024 * 1024 * 1024;
+            case TB:
+                return size * 1024 * 1024 * 1024 * 1024;
+            case PB:
+                return size * 1024 * 1024 * 1024 * 1024 * 1024;
+            default:
+                return size;
+        }
+    }
+    
+    // Mirrors TimeDuration so that both parsers produce bit-identical values
+    private static double toNanos(double duration, int unit) {
+        switch (unit) {
+            case US:
+                return duration * 1000;
+            case MS:
+                return duration * 1000 * 1000;
+            case S:
+                return duration * 1000 * 1000 * 1000;
+            case M:
+                return duration * 60 * 1000 * 1000 * 1000;
+            case H:
+                return duration * 60 * 60 * 1000 * 1000 * 1000;
+            case D:
+                return duration * 24 * 60 * 60 * 1000 * 1000 * 1000;
+            default:
+                return duration;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.cdap.wrangler.units;
+
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.TimeDuration;
+
+/**
+ * Comparison of a byte size or time duration value against a fixed threshold.
+ * 
+ * The threshold is normalized to the base unit once, so each test is a single
+ * floating point comparison after an allocation-free parse of the value.
+ */
+public final class UnitPredicate {
+    
+    /**
+     * Comparison operators.
+     */
+    public enum Operator {
+        GT(">"),
+        GE(">="),
+        LT("<"),
+        LE("<="),
+        EQ("=="),
+        NE("!=");
+        
+        private final String symbol;
+        
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        /**
+         * Gets the symbol of the operator.
+         * 
+         * @return The symbol
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+        
+        /**
+         * Looks up an operator by its symbol.
+         * 
+         * @param symbol One of {@code >, >=, <, <=, ==, !=}
+         * @return The operator
+         * @throws DirectiveParseException If the symbol is not a known operator
+         */
+        public static Operator of(String symbol) throws DirectiveParseException {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new DirectiveParseException("Invalid comparison operator: " + symbol
+                                              + ". Must be one of: >, >=, <, <=, ==, !=");
+        }
+    }
+    
+    private final Operator operator;
+    private final double threshold;
+    private final UnitParser.Kind kind;
+    
+    /**
+     * Creates a new UnitPredicate.
+     * 
+     * @param operator The comparison operator
+     * @param threshold The threshold in bytes or nanoseconds
+     * @param kind The kind of values compared
+     */
+    public UnitPredicate(Operator operator, double threshold, UnitParser.Kind kind) {
+        this.operator = operator;
+        this.threshold = threshold;
+        this.kind = kind;
+    }
+    
+    /**
+     * Creates a predicate comparing byte sizes.
+     * 
+     * @param operator The operator symbol
+     * @param threshold The threshold
+     * @return The predicate
+     * @throws DirectiveParseException If the operator is invalid
+     */
+    public static UnitPredicate of(String operator, ByteSize threshold) throws DirectiveParseException {
+        return new UnitPredicate(Operator.of(operator), (double) threshold.value(), UnitParser.Kind.BYTE_SIZE);
+    }
+    
+    /**
+     * Creates a predicate comparing time durations.
+     * 
+     * @param operator The operator symbol
+     * @param threshold The threshold
+     * @return The predicate
+     * @throws DirectiveParseException If the operator is invalid
+     */
+    public static UnitPredicate of(String operator, TimeDuration threshold) throws DirectiveParseException {
+        return new UnitPredicate(Operator.of(operator), (double) threshold.value(), UnitParser.Kind.TIME_DURATION);
+    }
+    
+    /**
+     * Gets the kind of values compared.
+     * 
+     * @return The kind
+     */
+    public UnitParser.Kind getKind() {
+        return kind;
+    }
+    
+    /**
+     * Tests a value already normalized to the base unit.
+     * 
+     * @param value The value in bytes or nanoseconds
+     * @return true if the value satisfies the comparison
+     */
+    public boolean test(double value) {
+        switch (operator) {
+            case GT:
+                return value > threshold;
+            case GE:
+                return value >= threshold;
+            case LT:
+                return value < threshold;
+            case LE:
+                return value <= threshold;
+            case EQ:
+                return value == threshold;
+            default:
+                return value != threshold;
+        }
+    }
+    
+    /**
+     * Tests a raw cell without materializing it. Malformed cells are reported as a
+     * possible match, so that the record is kept and the error is raised by the
+     * directive that later parses it.
+     * 
+     * @param buffer The buffer holding the cell
+     * @param from Start of the cell, inclusive
+     * @param to End of the cell, exclusive
+     * @return false only if the cell is known not to satisfy the comparison
+     */
+    public boolean mayMatch(byte[] buffer, int from, int to) {
+        double value = UnitParser.parse(buffer, from, to, kind);
+        return Double.isNaN(value) || test(value);
+    }
+    
+    @Override
+    public String toString() {
+        return operator.getSymbol() + " " + threshold + (kind == UnitParser.Kind.BYTE_SIZE ? "B" : "ns");
+    }
+}
@@ -0,0 +1,162 @@
+package io.cdap.wrangler.executor;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.MemoryBudget;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.steps.transformation.TopK;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for MemoryBudget and its use by RecipeExecutor.
+ */
+public class MemoryBudgetTest {
+    
+    @Test
+    public void testFailFast() throws Exception {
+        MemoryBudget budget = MemoryBudget.builder("recipe", 1000).build();
+        budget.reserve(600);
+        Assert.assertFalse(budget.tryReserve(500));
+        try {
+            budget.reserve(500);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertEquals("Memory budget 'recipe' cannot reserve 500 bytes (600 of 1000 bytes in use): "
+                                + "the budget is exhausted", e.getMessage());
+        }
+        budget.release(600);
+        budget.reserve(500);
+        Assert.assertEquals(500, budget.getReserved());
+        Assert.assertEquals(600, budget.getPeak());
+    }
+    
+    @Test
+    public void testUnlimited() throws Exception {
+        MemoryBudget budget = MemoryBudget.UNLIMITED;
+        Assert.assertTrue(budget.isUnlimited());
+        budget.reserve(Long.MAX_VALUE);
+        Assert.assertTrue(budget.tryReserve(Long.MAX_VALUE));
+        Assert.assertEquals(0, budget.getReserved());
+        budget.release(Long.MAX_VALUE);
+        Assert.assertEquals(0, budget.getPeak());
+        Assert.assertFalse(MemoryBudget.builder("node", Long.MAX_VALUE).build().isUnlimited());
+    }
+    
+    @Test
+    public void testParent() throws Exception {
+        MemoryBudget node = MemoryBudget.builder("node", 1000).build();
+        MemoryBudget first = MemoryBudget.builder("first", 800).parent(node).build();
+        MemoryBudget second = MemoryBudget.builder("second", 800).parent(node).build();
+        first.reserve(700);
+        try {
+            second.reserve(400);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Memory budget 'node'"));
+        }
+        // The failed reservation is undone in the child as well
+        Assert.assertEquals(0, second.getReserved());
+        Assert.assertTrue(second.tryReserve(300));
+        Assert.assertEquals(1000, node.getReserved());
+        first.release(700);
+        second.release(300);
+        Assert.assertEquals(0, node.getReserved());
+    }
+    
+    @Test
+    public void testBlocking() throws Exception {
+        MemoryBudget budget = MemoryBudget.builder("recipe", 1000).blocking(10, TimeUnit.SECONDS).build();
+        budget.reserve(800);
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            budget.release(800);
+        });
+        releaser.start();
+        budget.reserve(500);
+        releaser.join();
+        Assert.assertEquals(500, budget.getReserved());
+        
+        MemoryBudget timed = MemoryBudget.builder("timed", 100).blocking(20, TimeUnit.MILLISECONDS).build();
+        timed.reserve(100);
+        try {
+            timed.reserve(1);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage().endsWith("no memory was released within 20ms"));
+        }
+    }
+    
+    @Test
+    public void testExecutor() throws Exception {
+        List<Directive> directives = new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader()))
+            .parse("top-k :key :size top_size 10");
+        List<Row> rows = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            Row row = new Row();
+            row.add("key", "key-" + random.nextInt(100));
+            row.add("size", (1 + random.nextInt(999)) + "KB");
+            rows.add(row);
+        }
+        long batchBytes = RecipeExecutor.estimateBytes(rows);
+        long sketchBytes = ((TopK) directives.get(0)).estimateBytes();
+        
+        MemoryBudget budget = MemoryBudget.builder("top-k", batchBytes + sketchBytes).build();
+        RecipeExecutor executor = new RecipeExecutor(
+            directives, new RecipeContext(ExecutorContext.Environment.TRANSFORM, budget));
+        Assert.assertEquals(10, executor.execute(rows).size());
+        Assert.assertEquals(0, budget.getReserved());
+        Assert.assertTrue(budget.getPeak() > batchBytes);
+        
+        // The batch fits but the sketch does not
+        MemoryBudget small = MemoryBudget.builder("top-k", batchBytes + 1000).build();
+        executor = new RecipeExecutor(directives, new RecipeContext(ExecutorContext.Environment.TRANSFORM, small));
+        try {
+            executor.execute(rows);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage().startsWith(
+                "Memory budget 'top-k' cannot reserve " + sketchBytes + " bytes (" + batchBytes + " of"));
+        }
+        Assert.assertEquals(0, small.getReserved());
+    }
+    
+    @Test
+    public void testAggregateStats() throws Exception {
+        List<Directive> directives = new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader()))
+            .parse("aggregate-stats :size :time total_size total_time");
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Row row = new Row();
+            row.add("size", "1KB");
+            row.add("time", "10ms");
+            rows.add(row);
+        }
+        long batchBytes = RecipeExecutor.estimateBytes(rows);
+        
+        // The batch fits but the aggregation state does not
+        MemoryBudget small = MemoryBudget.builder("aggregate", batchBytes + 10).build();
+        RecipeExecutor executor = new RecipeExecutor(
+            directives, new RecipeContext(ExecutorContext.Environment.TRANSFORM, small));
+        try {
+            executor.execute(rows);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Memory budget 'aggregate' cannot reserve "));
+        }
+        Assert.assertEquals(0, small.getReserved());
+    }
+}
@@ -0,0 +1,132 @@
+package io.cdap.wrangler.jfr;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.sketch.Hashing;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that parsing and executing recipes records the Wrangler JFR events.
+ */
+public class WranglerEventsTest {
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static Row row(String size) {
+        Row row = new Row();
+        row.add("size", size);
+        return row;
+    }
+    
+    @Test
+    public void testEvents() throws Exception {
+        String recipe = "filter-size :size > 1KB\nformat-size :size_bytes size_text";
+        Path file = folder.getRoot().toPath().resolve("wrangler.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RecipeParseEvent.class);
+            recording.enable(DirectiveExecutionEvent.class);
+            recording.enable(ValueParseFailureEvent.class);
+            recording.enable(CacheStatisticsEvent.class);
+            recording.start();
+            
+            RecipeParser parser = new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader()));
+            List<Directive> directives = parser.parse(recipe);
+            try {
+                parser.parse("filter-size :size > > 1KB");
+                Assert.fail();
+            } catch (DirectiveParseException e) {
+                // Recorded with its error
+            }
+            
+            RecipeExecutor executor = new RecipeExecutor(directives, CONTEXT);
+            List<Row> rows = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Row row = row((i % 2 == 0 ? 512 : 4096) + "B");
+                row.setDouble("size_bytes", 2048);
+                rows.add(row);
+            }
+            Assert.assertEquals(5, executor.execute(rows).size());
+            try {
+                executor.execute(List.of(row("12 parsecs")));
+                Assert.fail();
+            } catch (DirectiveExecutionException e) {
+                // Recorded as a parse failure and a failed execution
+            }
+            
+            recording.stop();
+            recording.dump(file);
+        }
+        
+        List<RecordedEvent> parses = new ArrayList<>();
+        List<RecordedEvent> executions = new ArrayList<>();
+        List<RecordedEvent> failures = new ArrayList<>();
+        List<RecordedEvent> caches = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            switch (event.getEventType().getName()) {
+                case "io.cdap.wrangler.RecipeParse":
+                    parses.add(event);
+                    break;
+                case "io.cdap.wrangler.DirectiveExecution":
+                    executions.add(event);
+                    break;
+                case "io.cdap.wrangler.ValueParseFailure":
+                    failures.add(event);
+                    break;
+                case "io.cdap.wrangler.CacheStatistics":
+                    caches.add(event);
+                    break;
+                default:
+                    break;
+            }
+        }
+        
+        Assert.assertEquals(2, parses.size());
+        Assert.assertEquals(Hashing.hash64(recipe), parses.get(0).getLong("recipeHash"));
+        Assert.assertEquals(2, parses.get(0).getInt("lines"));
+        Assert.assertEquals(2, parses.get(0).getInt("directives"));
+        Assert.assertNull(parses.get(0).getString("error"));
+        Assert.assertNotNull(parses.get(1).getString("error"));
+        
+        Assert.assertEquals(3, executions.size());
+        Assert.assertEquals("filter-size", executions.get(0).getString("directive"));
+        Assert.assertEquals(10, executions.get(0).getInt("rowsIn"));
+        Assert.assertEquals(5, executions.get(0).getInt("rowsOut"));
+        Assert.assertEquals("format-size", executions.get(1).getString("directive"));
+        Assert.assertEquals(5, executions.get(1).getInt("rowsIn"));
+        Assert.assertEquals(-1, executions.get(2).getInt("rowsOut"));
+        
+        Assert.assertEquals(1, failures.size());
+        Assert.assertEquals("filter-size", failures.get(0).getString("directive"));
+        Assert.assertEquals("size", failures.get(0).getString("column"));
+        Assert.assertEquals("12 parsecs", failures.get(0).getString("value"));
+        
+        // Every value of the formatted batch is the same, so all but the first hit the cache
+        RecordedEvent formatter = null;
+        for (RecordedEvent event : caches) {
+            if (event.getString("cache").equals("unit-formatter")) {
+                formatter = event;
+            }
+        }
+        Assert.assertNotNull(formatter);
+        Assert.assertEquals(4, formatter.getLong("hits"));
+        Assert.assertEquals(1, formatter.getLong("misses"));
+    }
+}
@@ -42,6 +42,15 @@ public class ByteSizeTest {
         Assert.assertEquals(0.001953125, twoMegabytes.convertTo("GB"), 0.00000001);
     }
     
+    @Test
+    public void testLargeUnitConversion() throws SyntaxError {
+        // The divisors of TB and PB overflow int
+        ByteSize bytes = new ByteSize("1B");
+        Assert.assertEquals(3.0, bytes.convertFromBytes(3 * Math.pow(1024, 4), "TB"), 0.0);
+        Assert.assertEquals(2.0, bytes.convertFromBytes(2 * Math.pow(1024, 5), "PB"), 0.0);
+        Assert.assertEquals(1.5, new ByteSize("1536TB").convertTo("PB"), 0.0);
+    }
+    
     @Test
     public void testWhitespaceHandling() throws SyntaxError {
         ByteSize noSpace = new ByteSize("10MB");
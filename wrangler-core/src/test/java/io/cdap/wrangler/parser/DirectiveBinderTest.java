@@ -0,0 +1,111 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.parser.Token;
+import io.cdap.wrangler.grammar.DirectivesLexer;
+import io.cdap.wrangler.grammar.DirectivesParser;
+import io.cdap.wrangler.steps.transformation.AggregateStats;
+import io.cdap.wrangler.steps.transformation.AggregateStatsBinder;
+import io.cdap.wrangler.steps.transformation.FilterSize;
+import io.cdap.wrangler.steps.transformation.FilterSizeBinder;
+import io.cdap.wrangler.steps.transformation.TopKBinder;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for generated directive binders.
+ */
+public class DirectiveBinderTest {
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    private static DirectivesParser.DirectiveContext parse(String recipe) {
+        DirectivesParser parser = new DirectivesParser(
+            new CommonTokenStream(new DirectivesLexer(CharStreams.fromString(recipe))));
+        return parser.directives().directive(0);
+    }
+    
+    private static List<Row> rows() {
+        List<Row> rows = new ArrayList<>();
+        for (String[] values : Arrays.asList(new String[] {"1MB", "1s"}, new String[] {"3MB", "3s"})) {
+            Row row = new Row();
+            row.add("size", values[0]);
+            row.add("time", values[1]);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    @Test
+    public void testBindAggregateStats() throws Exception {
+        DirectivesParser.DirectiveContext directive = parse("aggregate-stats :size :time avg_size avg_time MB s average");
+        AggregateStatsBinder binder = new AggregateStatsBinder();
+        Assert.assertEquals(directive.name.getText(), binder.getName());
+        Assert.assertEquals(AggregateStats.usage().getName(), binder.getName());
+        
+        AggregateStats stats = binder.bind(DirectiveArguments.of(directive));
+        Row row = stats.execute(rows(), CONTEXT).get(0);
+        Assert.assertEquals(2.0, (double) row.getValue("avg_size"), 0.0001);
+        Assert.assertEquals(2.0, (double) row.getValue("avg_time"), 0.0001);
+        
+        stats = binder.bind(DirectiveArguments.of(parse("aggregate-stats :size :time s t MB s 'mean, max'")));
+        row = stats.execute(rows(), CONTEXT).get(0);
+        Assert.assertEquals(2.0, (double) row.getValue("s_mean"), 0.0001);
+        Assert.assertEquals(3.0, (double) row.getValue("t_max"), 0.0001);
+    }
+    
+    @Test
+    public void testBindDefaults() throws Exception {
+        AggregateStats stats = new AggregateStatsBinder()
+            .bind(DirectiveArguments.of(parse("aggregate-stats :size :time total_size total_time")));
+        Row row = stats.execute(rows(), CONTEXT).get(0);
+        Assert.assertEquals(4.0 * 1024 * 1024, (double) row.getValue("total_size"), 0.0001);
+    }
+    
+    @Test
+    public void testBindTypedThreshold() throws Exception {
+        List<Token> arguments = DirectiveArguments.of(parse("filter-size :size > 2MB"));
+        FilterSize filter = new FilterSizeBinder().bind(arguments);
+        Assert.assertEquals(1, filter.execute(rows(), CONTEXT).size());
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testArgumentTypeMismatch() throws Exception {
+        new FilterSizeBinder().bind(DirectiveArguments.of(parse("filter-size :size > 200ms")));
+    }
+    
+    @Test
+    public void testTokenTypeMatchesUsage() throws Exception {
+        try {
+            new FilterSizeBinder().bind(DirectiveArguments.of(parse("filter-size 5 > 2MB")));
+            Assert.fail("A number must not bind to a column argument");
+        } catch (DirectiveParseException e) {
+            Assert.assertEquals("Argument 'column' of directive 'filter-size' must be a column, but got NUMERIC '5'",
+                                e.getMessage());
+        }
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testMissingArguments() throws Exception {
+        new TopKBinder().bind(DirectiveArguments.of(parse("top-k :tenant :size bytes")));
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testTopKCapacityOverflow() throws Exception {
+        new TopKBinder().bind(DirectiveArguments.of(parse("top-k :tenant :size bytes 1000000000")));
+    }
+    
+    @Test
+    public void testArityMatchesUsage() {
+        Assert.assertEquals(7, AggregateStats.usage().getArguments().size());
+        Assert.assertEquals(3, FilterSize.usage().getArguments().size());
+    }
+}
@@ -0,0 +1,79 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.Directive;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.steps.transformation.AggregateStats;
+import io.cdap.wrangler.steps.transformation.FilterSize;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for RecipeParser and DirectiveRegistry.
+ */
+public class RecipeParserTest {
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    @Test
+    public void testRegistryIsLazy() throws Exception {
+        DirectiveRegistry registry = DirectiveRegistry.load(getClass().getClassLoader());
+        Assert.assertTrue(registry.getNames().contains("aggregate-stats"));
+        Assert.assertTrue(registry.getNames().contains("filter-size"));
+        Assert.assertFalse(registry.isLoaded("aggregate-stats"));
+        
+        new RecipeParser(registry).parse("filter-size :size > 1KB");
+        Assert.assertTrue(registry.isLoaded("filter-size"));
+        Assert.assertFalse(registry.isLoaded("aggregate-stats"));
+    }
+    
+    @Test
+    public void testParseAndExecute() throws Exception {
+        DirectiveRegistry registry = DirectiveRegistry.load(getClass().getClassLoader());
+        List<Directive> directives = new RecipeParser(registry).parse(
+            "# keep large objects only\n"
+                + "filter-size :size >= 2KB\n"
+                + "aggregate-stats :size :time total_size total_time KB ms\n");
+        Assert.assertEquals(2, directives.size());
+        Assert.assertTrue(directives.get(0) instanceof FilterSize);
+        Assert.assertTrue(directives.get(1) instanceof AggregateStats);
+        
+        List<Row> rows = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            Row row = new Row();
+            row.add("size", i + "KB");
+            row.add("time", i + "ms");
+            rows.add(row);
+        }
+        List<Row> result = new RecipeExecutor(directives, CONTEXT).execute(rows);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals(5.0, (double) result.get(0).getValue("total_size"), 0.0001);
+    }
+    
+    @Test
+    public void testNames() throws Exception {
+        Recipe recipe = new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader())).parse(
+            "filter-size :size >= 2KB\n"
+                + "aggregate-stats :size :time total_size total_time\n");
+        Assert.assertEquals("filter-size", recipe.getName(0));
+        Assert.assertEquals("aggregate-stats", recipe.getName(1));
+        Assert.assertEquals("aggregate-stats", recipe.subList(1, 2).getName(0));
+        Assert.assertEquals("FilterSize", Recipe.nameOf(new ArrayList<>(recipe), 0));
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testUnknownDirective() throws Exception {
+        new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader())).parse("no-such-directive :a");
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testSyntaxError() throws Exception {
+        new RecipeParser(DirectiveRegistry.load(getClass().getClassLoader())).parse("filter-size :size > > 1KB ;");
+    }
+}
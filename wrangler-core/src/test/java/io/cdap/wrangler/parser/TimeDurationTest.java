@@ -0,0 +1,30 @@
+package io.cdap.wrangler.parser;
+
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for TimeDuration parser.
+ */
+public class TimeDurationTest {
+    
+    @Test
+    public void testUnitConversion() throws SyntaxError {
+        TimeDuration duration = new TimeDuration("1500ms");
+        Assert.assertEquals(1.5e9, (double) duration.value(), 0.0);
+        Assert.assertEquals(1.5, duration.convertTo("s"), 0.0);
+        Assert.assertEquals(1500000.0, duration.convertTo("us"), 0.0);
+    }
+    
+    @Test
+    public void testLargeUnitConversion() throws SyntaxError {
+        // The divisors of m, h and d overflow int
+        TimeDuration duration = new TimeDuration("1ns");
+        Assert.assertEquals(3.0, duration.convertFromNanos(180e9, "m"), 0.0);
+        Assert.assertEquals(2.0, duration.convertFromNanos(7200e9, "h"), 0.0);
+        Assert.assertEquals(1.5, duration.convertFromNanos(36 * 3600e9, "d"), 0.0);
+        Assert.assertEquals(1.5, new TimeDuration("36h").convertTo("d"), 0.0);
+    }
+}
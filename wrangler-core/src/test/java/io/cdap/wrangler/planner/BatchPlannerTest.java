@@ -0,0 +1,131 @@
+package io.cdap.wrangler.planner;
+
+import io.cdap.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for BatchPlanner.
+ */
+public class BatchPlannerTest {
+    
+    private static List<Row> rows(int count, int distinct, boolean extra) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            row.add("size", (i % distinct) + "KB");
+            row.add("time", (i % distinct) + "ms");
+            if (extra) {
+                row.add("host", "host-" + i);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private static BatchPlanner.Builder planner(List<ExecutionPlan> decisions) {
+        return BatchPlanner.builder("aggregate-stats").column("size").column("time")
+            .batchSize(256, 65536).targetLatency(1, TimeUnit.MILLISECONDS).parallelism(1)
+            .resampleInterval(2).listener(decisions::add);
+    }
+    
+    /**
+     * Runs a batch on the plan the planner gives, taking the given work per row,
+     * shared evenly by the threads of the plan.
+     */
+    private static ExecutionPlan run(BatchPlanner planner, List<Row> rows, long plainNanos, long cachedNanos) {
+        ExecutionPlan plan = planner.plan(rows);
+        long work = rows.size() * (plan.isCached() ? cachedNanos : plainNanos);
+        planner.record(plan, rows.size(), work / plan.getParallelism());
+        return plan;
+    }
+    
+    @Test
+    public void testDecisionsFollowData() {
+        List<ExecutionPlan> decisions = new ArrayList<>();
+        BatchPlanner planner = planner(decisions).build();
+        List<Row> repeated = rows(1024, 8, false);
+        
+        ExecutionPlan first = run(planner, repeated, 1000, 100);
+        Assert.assertEquals("first batch", first.getReason());
+        Assert.assertFalse(first.isCached());
+        Assert.assertEquals(16 / 128.0, first.getDistinctRatio(), 1e-9);
+        
+        // The resample sizes batches for 1ms at 1000ns per row, then tries the cache
+        run(planner, repeated, 1000, 100);
+        ExecutionPlan trial = run(planner, repeated, 1000, 100);
+        Assert.assertTrue(trial.isCached());
+        Assert.assertEquals(512, planner.getPlan().getBatchSize());
+        for (int i = 0; i < 4; i++) {
+            run(planner, repeated, 1000, 100);
+        }
+        ExecutionPlan cached = planner.getPlan();
+        Assert.assertTrue(cached.isCached());
+        Assert.assertEquals("sequential+cache", cached.getStrategy());
+        Assert.assertTrue(cached.getReason(), cached.getReason().startsWith("100.0 ns/row with the parse cache"));
+        
+        // Wider rows are sampled right away; unique values turn the cache off
+        ExecutionPlan wide = run(planner, rows(1024, 1024, true), 1000, 100);
+        Assert.assertEquals("row width changed from 2 to 3", wide.getReason());
+        Assert.assertFalse(wide.isCached());
+        Assert.assertEquals(3.0, wide.getRowWidth(), 0);
+        
+        // Only changed decisions are passed on
+        Assert.assertEquals(4, decisions.size());
+        Assert.assertSame(wide, decisions.get(3));
+    }
+    
+    @Test
+    public void testCacheKeptOffWhenItDoesNotHelp() {
+        List<ExecutionPlan> decisions = new ArrayList<>();
+        BatchPlanner planner = planner(decisions).build();
+        List<Row> repeated = rows(1024, 8, false);
+        for (int i = 0; i < 20; i++) {
+            run(planner, repeated, 100, 98);
+        }
+        Assert.assertFalse(planner.getPlan().isCached());
+    }
+    
+    @Test
+    public void testTrialsBackOff() {
+        BatchPlanner planner = planner(new ArrayList<>()).build();
+        List<Row> repeated = rows(1024, 8, false);
+        int trials = 0;
+        for (int i = 0; i < 1000; i++) {
+            ExecutionPlan plan = run(planner, repeated, 100, 98);
+            if (plan.getReason().equals("trial")) {
+                trials++;
+            }
+        }
+        Assert.assertFalse(planner.getPlan().isCached());
+        // Without backing off, 4 of every 6 batches would be trials
+        Assert.assertTrue("trials: " + trials, trials < 100);
+    }
+    
+    @Test
+    public void testParallelism() {
+        BatchPlanner planner = planner(new ArrayList<>()).parallelism(4).batchSize(4096, 4096)
+            .minChunkTime(100, TimeUnit.MICROSECONDS).build();
+        List<Row> unique = rows(4096, 4096, false);
+        // Unknown cost: sequential. 100ns per row: 4 chunks of 100us.
+        Assert.assertEquals(1, run(planner, unique, 100, 100).getParallelism());
+        run(planner, unique, 100, 100);
+        ExecutionPlan plan = run(planner, unique, 100, 100);
+        Assert.assertEquals(4, plan.getParallelism());
+        Assert.assertEquals("parallel(4)", plan.getStrategy());
+        // Cheaper rows are not worth splitting as much
+        for (int i = 0; i < 4; i++) {
+            plan = run(planner, unique, 50, 50);
+        }
+        Assert.assertEquals(2, plan.getParallelism());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        BatchPlanner.builder("aggregate-stats").column("size").batchSize(1024, 512).build();
+    }
+}
@@ -0,0 +1,128 @@
+package io.cdap.wrangler.shard;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.executor.RecipeExecutor;
+import io.cdap.wrangler.parser.RecipeParser;
+import io.cdap.wrangler.registry.DirectiveRegistry;
+import io.cdap.wrangler.sink.AsyncFileSink;
+import io.cdap.wrangler.sink.DelimitedEncoder;
+import io.cdap.wrangler.source.DelimitedReader;
+import io.cdap.wrangler.steps.transformation.AggregateState;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for ShardCoordinator, running real worker processes.
+ */
+public class ShardCoordinatorTest {
+    private static final String RECIPE = "filter-size :size >= 1KB\n"
+        + "aggregate-stats :size :latency total_size total_time MB s";
+    private static final int ROWS = 20000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static List<Row> rows(int count) {
+        String[] units = {"B", "KB", "MB"};
+        Random random = new Random(11);
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            row.add("key", "key-" + random.nextInt(5000));
+            row.add("size", (1 + random.nextInt(999)) + "." + random.nextInt(100) + units[random.nextInt(3)]);
+            row.add("latency", (1 + random.nextInt(999)) + "ms");
+            row.add("c0", "value-" + random.nextInt(100));
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    @Test
+    public void testMatchesSingleProcess() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("input.csv");
+        try (AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).build()) {
+            sink.write(rows(ROWS));
+        }
+        DirectiveRegistry registry = DirectiveRegistry.load(getClass().getClassLoader());
+        List<Row> rows;
+        try (DelimitedReader reader = new DelimitedReader(Files.newInputStream(file), ',')) {
+            rows = reader.read(Integer.MAX_VALUE);
+        }
+        ExecutorContext context = () -> ExecutorContext.Environment.TRANSFORM;
+        Row expected = new RecipeExecutor(new RecipeParser(registry).parse(RECIPE), context).execute(rows).get(0);
+        
+        ShardCoordinator byRange = ShardCoordinator.builder(registry).workers(3).batchSize(1000).build();
+        List<ShardSpec> shards = byRange.plan(file);
+        Assert.assertEquals(shards.get(0).headerEnd, shards.get(0).start);
+        Assert.assertEquals(Files.size(file), shards.get(2).end);
+        for (int i = 1; i < shards.size(); i++) {
+            Assert.assertEquals(shards.get(i - 1).end, shards.get(i).start);
+        }
+        Row actual = byRange.execute(file, RECIPE);
+        Assert.assertEquals(expected.getDouble("total_size"), actual.getDouble("total_size"), 0);
+        Assert.assertEquals(expected.getDouble("total_time"), actual.getDouble("total_time"), 0);
+        AggregateState rangeState = byRange.aggregate(file, RECIPE);
+        
+        ShardCoordinator byKey = ShardCoordinator.builder(registry).workers(2).keyHash("key").build();
+        AggregateState keyState = byKey.aggregate(file, RECIPE);
+        Assert.assertEquals(rangeState.getCount(), keyState.getCount());
+        Assert.assertEquals(rangeState.getOffset(), keyState.getOffset());
+        actual = byKey.execute(file, RECIPE);
+        Assert.assertEquals(expected.getDouble("total_size"), actual.getDouble("total_size"), 0);
+        Assert.assertEquals(expected.getDouble("total_time"), actual.getDouble("total_time"), 0);
+    }
+    
+    @Test
+    public void testFailures() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("bad.csv");
+        Files.write(file, "size,latency\n1KB,1ms\n2KB,2ms\nbad,3ms\n".getBytes(StandardCharsets.UTF_8));
+        ShardCoordinator coordinator = ShardCoordinator
+            .builder(DirectiveRegistry.load(getClass().getClassLoader())).workers(2).build();
+        try {
+            coordinator.execute(file, "top-k :key :size top 10\naggregate-stats :size :latency s t");
+            Assert.fail();
+        } catch (DirectiveParseException e) {
+            Assert.assertEquals("Directive 'top-k' aggregates over its batch and cannot run in a shard",
+                                e.getMessage());
+        }
+        try {
+            coordinator.execute(file, "aggregate-stats :size :latency s t");
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Shard 1 failed: Error parsing value"));
+        }
+    }
+    
+    @Test
+    public void testTimeout() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("input.csv");
+        Files.write(file, "size,latency\n1KB,1ms\n".getBytes(StandardCharsets.UTF_8));
+        // A worker that never answers
+        Path hang = folder.getRoot().toPath().resolve("hang.sh");
+        Files.write(hang, "#!/bin/sh\nexec sleep 60\n".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(hang.toFile().setExecutable(true));
+        ShardCoordinator coordinator = ShardCoordinator.builder(DirectiveRegistry.load(getClass().getClassLoader()))
+            .workers(2).jvm(hang.toString(), "").timeout(500, TimeUnit.MILLISECONDS).build();
+        long start = System.nanoTime();
+        try {
+            coordinator.execute(file, "aggregate-stats :size :latency s t");
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertEquals("Shard 0 did not finish within 500 ms", e.getMessage());
+        }
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    }
+}
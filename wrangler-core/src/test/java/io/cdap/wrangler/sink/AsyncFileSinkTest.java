@@ -0,0 +1,156 @@
+package io.cdap.wrangler.sink;
+
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.api.RowBatchPool;
+import io.cdap.wrangler.source.DelimitedReader;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for AsyncFileSink and the encoders.
+ */
+public class AsyncFileSinkTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static Row row(long id, String size, double bytes) {
+        Row row = new Row();
+        row.add("id", id);
+        row.add("size", size);
+        row.setDouble("bytes", bytes);
+        return row;
+    }
+    
+    @Test
+    public void testDelimited() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("out.csv");
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rows.add(row(i, i + "KB", i * 1024));
+        }
+        // Columns follow the header order
+        Row reordered = new Row();
+        reordered.add("size", "1,5\"MB");
+        reordered.add("id", 1000L);
+        rows.add(reordered);
+        try (AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).batchSize(64)
+            .commitRows(256).fsync(true).build()) {
+            sink.write(rows);
+            sink.flush();
+            SinkMetrics metrics = sink.getMetrics();
+            Assert.assertEquals(1001, metrics.getRowsWritten());
+            Assert.assertEquals(Files.size(file), metrics.getBytesWritten());
+            Assert.assertTrue(metrics.getCommits() >= 4 && metrics.getCommits() < 1001 / 64 + 2);
+        }
+        
+        // Appending does not repeat the header
+        try (AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).build()) {
+            sink.write(row(1001, "1MB", 1024 * 1024));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(1003, lines.size());
+        Assert.assertEquals("id,size,bytes", lines.get(0));
+        Assert.assertEquals("7,7KB,7168.0", lines.get(8));
+        Assert.assertEquals("1000,\"1,5\"\"MB\",", lines.get(1001));
+        Assert.assertEquals("1001,1MB,1048576.0", lines.get(1002));
+        
+        try (DelimitedReader reader = new DelimitedReader(Files.newInputStream(file), ',')) {
+            Assert.assertEquals("999KB", reader.read(1000).get(999).getValue("size"));
+        }
+    }
+    
+    @Test
+    public void testJsonLines() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("out.jsonl");
+        Row row = new Row();
+        row.add("name", "a \"quoted\"\tvalue");
+        row.add("missing", null);
+        row.add("flag", true);
+        row.setDouble("ratio", 0.25);
+        row.setDouble("nan", Double.NaN);
+        try (AsyncFileSink sink = AsyncFileSink.builder(file, new JsonLinesEncoder()).build()) {
+            sink.write(Arrays.asList(row, row(1, "1KB", 1024)));
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(Arrays.asList(
+            "{\"name\":\"a \\\"quoted\\\"\\u0009value\",\"missing\":null,\"flag\":true,\"ratio\":0.25,\"nan\":null}",
+            "{\"id\":1,\"size\":\"1KB\",\"bytes\":1024.0}"), lines);
+    }
+    
+    @Test
+    public void testPooledBatchesAndCommitInterval() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("pooled.csv");
+        RowBatchPool pool = new RowBatchPool(4, 16);
+        try (AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder('\t')).queueCapacity(2)
+            .commitRows(Long.MAX_VALUE).commitInterval(10, TimeUnit.MILLISECONDS).build()) {
+            for (int i = 0; i < 50; i++) {
+                RowBatch batch = pool.acquire();
+                for (int j = 0; j < 16; j++) {
+                    Row row = batch.next();
+                    row.add("id", (long) (i * 16 + j));
+                }
+                sink.write(batch, pool);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while ((sink.getMetrics().getRowsWritten() < 800 || sink.getMetrics().getCommits() == 0)
+                && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            SinkMetrics metrics = sink.getMetrics();
+            Assert.assertEquals(800, metrics.getRowsWritten());
+            Assert.assertTrue(metrics.getCommits() > 0);
+            Assert.assertTrue(metrics.getMaxQueueDepth() <= 2);
+            // Released batches are handed out again
+            Assert.assertEquals(0, pool.acquire().size());
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        Assert.assertEquals(801, lines.size());
+        Assert.assertEquals("799", lines.get(800));
+    }
+    
+    @Test(timeout = 10000)
+    public void testInterruptedWriterKeepsDraining() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("interrupted.csv");
+        AsyncFileSink sink = AsyncFileSink.builder(file, new DelimitedEncoder(',')).batchSize(1).queueCapacity(1)
+            .build();
+        Thread writer = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("wrangler-sink-interrupted.csv")) {
+                writer = thread;
+            }
+        }
+        Assert.assertNotNull(writer);
+        writer.interrupt();
+        
+        // Producers get the failure instead of waiting for a writer that is gone
+        try {
+            for (int i = 0; i < 100; i++) {
+                sink.write(row(i, "1KB", 1024));
+            }
+            sink.flush();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("interrupted"));
+        }
+        try {
+            sink.close();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("interrupted"));
+        }
+        writer.join();
+    }
+}
@@ -0,0 +1,94 @@
+package io.cdap.wrangler.sketch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for HyperLogLog and SpaceSaving sketches.
+ */
+public class SketchTest {
+    
+    @Test
+    public void testHyperLogLogEstimate() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100000; i++) {
+            sketch.add("object-" + i);
+            sketch.add("object-" + i);
+        }
+        Assert.assertEquals(100000, sketch.estimate(), 100000 * 0.03);
+    }
+    
+    @Test
+    public void testHyperLogLogSmallCardinality() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 10; i++) {
+            sketch.add("host-" + (i % 5));
+        }
+        Assert.assertEquals(5, sketch.estimate());
+    }
+    
+    @Test
+    public void testHyperLogLogMerge() {
+        HyperLogLog left = new HyperLogLog(12);
+        HyperLogLog right = new HyperLogLog(12);
+        for (int i = 0; i < 50000; i++) {
+            left.add("key-" + i);
+            right.add("key-" + (i + 25000));
+        }
+        left.merge(right);
+        Assert.assertEquals(75000, left.estimate(), 75000 * 0.06);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testHyperLogLogMergePrecisionMismatch() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+    
+    @Test
+    public void testSpaceSavingFindsHeavyHitters() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        for (int i = 0; i < 10000; i++) {
+            sketch.add("tenant-" + i, 1);
+            if (i % 10 == 0) {
+                sketch.add("big", 100);
+                sketch.add("medium", 50);
+            }
+        }
+        List<SpaceSaving.Counter> top = sketch.top(2);
+        Assert.assertEquals("big", top.get(0).getKey());
+        Assert.assertEquals("medium", top.get(1).getKey());
+        Assert.assertTrue(top.get(0).getWeight() >= 100000);
+        Assert.assertTrue(top.get(0).getWeight() - top.get(0).getError() <= 100000);
+        Assert.assertEquals(10000 + 150000, sketch.getTotalWeight(), 0.0);
+    }
+    
+    @Test
+    public void testSpaceSavingMerge() {
+        SpaceSaving left = new SpaceSaving(10);
+        SpaceSaving right = new SpaceSaving(10);
+        left.add("a", 10);
+        left.add("b", 5);
+        right.add("a", 1);
+        right.add("c", 20);
+        left.merge(right);
+        List<SpaceSaving.Counter> top = left.top(3);
+        Assert.assertEquals("c", top.get(0).getKey());
+        Assert.assertEquals(20, top.get(0).getWeight(), 0.0);
+        Assert.assertEquals("a", top.get(1).getKey());
+        Assert.assertEquals(11, top.get(1).getWeight(), 0.0);
+        Assert.assertEquals(0, top.get(1).getError(), 0.0);
+    }
+    
+    @Test
+    public void testSpaceSavingLargeCapacity() {
+        // Counters are allocated as keys arrive, not for the whole capacity
+        SpaceSaving sketch = new SpaceSaving(Integer.MAX_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("key-" + i, i);
+        }
+        Assert.assertEquals("key-999", sketch.top(1).get(0).getKey());
+        Assert.assertEquals(1000, sketch.top(2000).size());
+    }
+}
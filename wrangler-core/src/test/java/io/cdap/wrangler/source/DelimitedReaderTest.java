@@ -0,0 +1,138 @@
+package io.cdap.wrangler.source;
+
+import io.cdap.wrangler.api.Dictionary;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.RowBatch;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import io.cdap.wrangler.steps.transformation.FilterDuration;
+import io.cdap.wrangler.steps.transformation.FilterSize;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for DelimitedReader.
+ */
+public class DelimitedReaderTest {
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    private static DelimitedReader reader(String data) throws Exception {
+        return new DelimitedReader(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), ',');
+    }
+    
+    @Test
+    public void testRead() throws Exception {
+        DelimitedReader reader = reader("id,size,latency\r\n1,10MB,5ms\r\n\r\n2,1KB,300ms");
+        Assert.assertEquals(Arrays.asList("id", "size", "latency"), reader.getColumns());
+        List<Row> rows = reader.read(10);
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("10MB", rows.get(0).getValue("size"));
+        Assert.assertEquals("300ms", rows.get(1).getValue("latency"));
+        Assert.assertEquals(0, reader.read(10).size());
+    }
+    
+    @Test
+    public void testReadBatch() throws Exception {
+        DelimitedReader reader = reader("id,size\n1,1KB\n2,2KB\n3,3KB\n");
+        RowBatch batch = new RowBatch(2);
+        Assert.assertEquals(2, reader.read(batch, 2));
+        Row first = batch.rows().get(0);
+        first.setDouble("size_bytes", 1024);
+        Assert.assertEquals(1, reader.read(batch, 2));
+        Assert.assertSame(first, batch.rows().get(0));
+        Assert.assertEquals("3", first.getValue("id"));
+        Assert.assertEquals(-1, first.find("size_bytes"));
+        Assert.assertEquals(0, reader.read(batch, 2));
+    }
+    
+    @Test
+    public void testDictionary() throws Exception {
+        StringBuilder data = new StringBuilder("host,size,id\n");
+        for (int i = 0; i < 3000; i++) {
+            data.append("host-").append(i % 3).append(',').append(i % 5).append("KB,").append(i).append('\n');
+        }
+        byte[] bytes = data.toString().getBytes(StandardCharsets.UTF_8);
+        Dictionary dictionary = new Dictionary();
+        DelimitedReader first = new DelimitedReader(new ByteArrayInputStream(bytes), ',', dictionary);
+        DelimitedReader second = new DelimitedReader(new ByteArrayInputStream(bytes), ',', dictionary);
+        List<Row> rows = first.read(3000);
+        List<Row> others = second.read(3000);
+        List<Row> plain = reader(data.toString()).read(3000);
+        
+        // Readers sharing a dictionary share column names and repeated values
+        Assert.assertSame(first.getColumns().get(0), second.getColumns().get(0));
+        Assert.assertSame(rows.get(0).getValue("host"), others.get(3).getValue("host"));
+        Assert.assertEquals(rows.get(1).getCode(1), others.get(6).getCode(1));
+        Assert.assertNotEquals(Dictionary.NONE, rows.get(1).getCode(1));
+        Assert.assertEquals("1KB", dictionary.decode(rows.get(1).getCode(1)));
+        Assert.assertTrue(rows.get(2999).estimateBytes() < plain.get(2999).estimateBytes());
+        
+        // Unique ids stop being encoded once the sample shows they do not repeat
+        Assert.assertTrue(first.isEncoded("host"));
+        Assert.assertFalse(first.isEncoded("id"));
+        Assert.assertEquals(Dictionary.NONE, rows.get(2999).getCode(2));
+        Assert.assertEquals("2999", rows.get(2999).getValue("id"));
+        Assert.assertTrue(dictionary.size() < 3 + 5 + 3 + FieldEncoder.SAMPLE + 1);
+        
+        FilterSize filter = new FilterSize("size", ">=", new ByteSize("3KB"));
+        Assert.assertEquals(filter.execute(plain, CONTEXT).size(), filter.execute(rows, CONTEXT).size());
+        Assert.assertEquals(1200, filter.execute(others, CONTEXT).size());
+    }
+    
+    @Test
+    public void testSeparateDictionaries() throws Exception {
+        // The same codes stand for different sizes in the two dictionaries
+        byte[] small = "size\n1KB\n2KB\n".getBytes(StandardCharsets.UTF_8);
+        byte[] large = "size\n5KB\n1KB\n".getBytes(StandardCharsets.UTF_8);
+        List<Row> first = new DelimitedReader(new ByteArrayInputStream(small), ',', new Dictionary()).read(10);
+        List<Row> second = new DelimitedReader(new ByteArrayInputStream(large), ',', new Dictionary()).read(10);
+        Assert.assertNotEquals(Dictionary.NONE, first.get(0).getCode(0));
+        Assert.assertEquals(first.get(0).getCode(0), second.get(0).getCode(0));
+        
+        FilterSize filter = new FilterSize("size", ">=", new ByteSize("3KB"));
+        Assert.assertEquals(0, filter.execute(first, CONTEXT).size());
+        Assert.assertEquals(1, filter.execute(second, CONTEXT).size());
+        Assert.assertEquals(0, filter.execute(first, CONTEXT).size());
+    }
+    
+    @Test
+    public void testPushdown() throws Exception {
+        StringBuilder data = new StringBuilder("id,size,latency\n");
+        for (int i = 0; i < 1000; i++) {
+            data.append(i).append(',').append(i % 100).append("MB,").append(i % 500).append("ms\n");
+        }
+        FilterSize sizeFilter = new FilterSize("size", ">", new ByteSize("94MB"));
+        FilterDuration timeFilter = new FilterDuration("latency", ">=", new TimeDuration("200ms"));
+        
+        DelimitedReader reader = reader(data.toString());
+        reader.pushdown(sizeFilter.getColumn(), sizeFilter.getPredicate());
+        reader.pushdown(timeFilter.getColumn(), timeFilter.getPredicate());
+        List<Row> pushed = reader.read(Integer.MAX_VALUE);
+        Assert.assertEquals(1000, reader.getRowsScanned());
+        Assert.assertEquals(pushed.size(), reader.getRowsMaterialized());
+        
+        List<Row> expected = timeFilter.execute(sizeFilter.execute(reader(data.toString()).read(Integer.MAX_VALUE),
+                                                                   CONTEXT), CONTEXT);
+        Assert.assertEquals(expected.size(), pushed.size());
+        Assert.assertEquals(expected.size(), timeFilter.execute(sizeFilter.execute(pushed, CONTEXT), CONTEXT).size());
+        Assert.assertTrue(pushed.size() > 0 && pushed.size() < 50);
+    }
+    
+    @Test
+    public void testLongLines() throws Exception {
+        char[] wide = new char[200000];
+        Arrays.fill(wide, 'x');
+        DelimitedReader reader = reader("a,b\n" + new String(wide) + ",1B\nshort,2B\n");
+        List<Row> rows = reader.read(10);
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals(200000, ((String) rows.get(0).getValue("a")).length());
+        Assert.assertEquals("2B", rows.get(1).getValue("b"));
+    }
+}
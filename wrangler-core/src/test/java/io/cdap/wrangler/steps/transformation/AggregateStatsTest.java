@@ -0,0 +1,391 @@
+package io.cdap.wrangler.steps.transformation;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.planner.BatchPlanner;
+import io.cdap.wrangler.planner.ExecutionPlan;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for AggregateStats directive.
+ */
+public class AggregateStatsTest {
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+    
+    private static List<Row> rows(int count) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Row row = new Row();
+            row.add("size", (i + 1) + "KB");
+            row.add("time", (i + 1) + "ms");
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private static AggregateStats directive(String operation) throws DirectiveParseException {
+        return new AggregateStats("size", "time", "total_size", "total_time",
+                                  Optional.of("KB"), Optional.of("ms"), Optional.of(operation));
+    }
+    
+    @Test
+    public void testTotal() throws Exception {
+        List<Row> result = directive("total").execute(rows(4), CONTEXT);
+        Assert.assertEquals(10.0, (double) result.get(0).getValue("total_size"), 0.0001);
+        Assert.assertEquals(10.0, (double) result.get(3).getValue("total_time"), 0.0001);
+    }
+    
+    @Test
+    public void testAverage() throws Exception {
+        List<Row> result = directive("average").execute(rows(4), CONTEXT);
+        Assert.assertEquals(2.5, (double) result.get(0).getValue("total_size"), 0.0001);
+        Assert.assertEquals(2.5, (double) result.get(0).getValue("total_time"), 0.0001);
+    }
+    
+    @Test(expected = DirectiveExecutionException.class)
+    public void testNoValidRows() throws Exception {
+        directive("total").execute(new ArrayList<>(), CONTEXT);
+    }
+    
+    @Test
+    public void testMultipleStatistics() throws Exception {
+        List<Row> result = directive("count, sum, mean,min,max,variance,stddev").execute(rows(4), CONTEXT);
+        Row row = result.get(0);
+        Assert.assertEquals(4L, row.getValue("total_size_count"));
+        Assert.assertEquals(10.0, (double) row.getValue("total_size_sum"), 0.0001);
+        Assert.assertEquals(2.5, (double) row.getValue("total_size_mean"), 0.0001);
+        Assert.assertEquals(1.0, (double) row.getValue("total_size_min"), 0.0001);
+        Assert.assertEquals(4.0, (double) row.getValue("total_size_max"), 0.0001);
+        Assert.assertEquals(5.0 / 3, (double) row.getValue("total_size_variance"), 0.0001);
+        Assert.assertEquals(Math.sqrt(5.0 / 3), (double) row.getValue("total_time_stddev"), 0.0001);
+        Assert.assertEquals(4.0, (double) result.get(3).getValue("total_time_max"), 0.0001);
+        
+        // A single statistic keeps the plain output names
+        Assert.assertEquals(1.0, (double) directive("MIN").execute(rows(4), CONTEXT).get(0).getValue("total_time"),
+                            0.0001);
+    }
+    
+    @Test(expected = DirectiveParseException.class)
+    public void testUnknownStatistic() throws Exception {
+        directive("mean,median");
+    }
+    
+    @Test
+    public void testVarianceOfLargeValues() throws Exception {
+        // Sums of squares of these values lose the spread entirely in doubles
+        double[] values = {1e12 + 4, 1e12 + 7, 1e12 + 13, 1e12 + 16};
+        AggregateState state = new AggregateState();
+        AggregateState first = new AggregateState();
+        AggregateState second = new AggregateState();
+        ConcurrentAggregateState concurrent = new ConcurrentAggregateState();
+        for (int i = 0; i < values.length; i++) {
+            state.add(values[i], values[i] * 1e3);
+            (i < 1 ? first : second).add(values[i], values[i] * 1e3);
+            concurrent.add(values[i], values[i] * 1e3);
+        }
+        first.merge(second);
+        AggregateState snapshot = concurrent.snapshot();
+        for (AggregateState result : new AggregateState[] {state, first, snapshot}) {
+            Assert.assertEquals(30.0, result.getBytesVariance(), 1e-6);
+            Assert.assertEquals(30e6, result.getNanosVariance(), 1);
+            Assert.assertEquals(1e12 + 4, result.getMinBytes(), 0.0);
+            Assert.assertEquals(1e15 + 16e3, result.getMaxNanos(), 0.0);
+        }
+        
+        // Moments survive a round trip
+        AggregateState copy = AggregateState.fromBytes(state.toBytes());
+        Assert.assertEquals(30.0, copy.getBytesVariance(), 1e-6);
+        Assert.assertEquals(1e12 + 16, copy.getMaxBytes(), 0.0);
+    }
+    
+    @Test
+    public void testVarianceWithOutlier() {
+        // 13M one-millisecond durations and a single 30-day one
+        long count = 13_000_000;
+        double outlier = 30 * 86400e9;
+        AggregateState state = new AggregateState();
+        for (long i = 1; i < count; i++) {
+            state.add(1024, 1e6);
+        }
+        state.add(1024, outlier);
+        double expected = (outlier - 1e6) * (outlier - 1e6) / count;
+        Assert.assertEquals(expected, state.getNanosVariance(), expected * 1e-9);
+        Assert.assertEquals(0.0, state.getBytesVariance(), 0.0);
+    }
+    
+    @Test
+    public void testStateRoundTrip() throws Exception {
+        AggregateState state = new AggregateState();
+        state.add(1024, 1000000);
+        state.advance();
+        state.advance();
+        
+        AggregateState copy = AggregateState.fromBytes(state.toBytes());
+        Assert.assertEquals(1024.0, copy.getTotalBytes(), 0.0);
+        Assert.assertEquals(1000000.0, copy.getTotalNanos(), 0.0);
+        Assert.assertEquals(1, copy.getCount());
+        Assert.assertEquals(2, copy.getOffset());
+    }
+    
+    @Test
+    public void testMergeIsOrderIndependent() throws Exception {
+        double[] values = {0.1, 1402.88, 1e15, -3.75, 2.5e-9, 7.0 / 3, 1e-30, 123456789.123};
+        AggregateState forward = new AggregateState();
+        AggregateState first = new AggregateState();
+        AggregateState second = new AggregateState();
+        for (int i = 0; i < values.length; i++) {
+            forward.add(values[i], values[values.length - 1 - i]);
+            (i % 2 == 0 ? first : second).add(values[i], values[values.length - 1 - i]);
+        }
+        second.merge(first);
+        Assert.assertEquals(forward.getTotalBytes(), second.getTotalBytes(), 0.0);
+        Assert.assertEquals(forward.getTotalNanos(), second.getTotalNanos(), 0.0);
+        Assert.assertEquals(1e15 + 123456789.123 + 1402.88 + 7.0 / 3 - 3.75 + 0.1, forward.getTotalBytes(), 0.5);
+        
+        // States of other versions are rejected
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(1);
+            out.writeDouble(1536.5);
+            out.writeDouble(2e6);
+            out.writeLong(3);
+            out.writeLong(4);
+        }
+        try {
+            AggregateState.fromBytes(bytes.toByteArray());
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Unsupported aggregate state version: 1", e.getMessage());
+        }
+    }
+    
+    @Test
+    public void testExactSumRounding() {
+        // The sum keeps 64 fraction bits, so compare with exact sums truncated to them
+        BigDecimal scale = new BigDecimal(Math.scalb(1.0, 64));
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            ExactSum sum = new ExactSum();
+            BigDecimal expected = BigDecimal.ZERO;
+            for (int j = 0; j < 20; j++) {
+                double value = Math.scalb(random.nextDouble() - 0.3, random.nextInt(120) - 50);
+                sum.add(value);
+                expected = expected.add(new BigDecimal(value).multiply(scale).setScale(0, RoundingMode.DOWN));
+            }
+            Assert.assertEquals(expected.divide(scale).doubleValue(), sum.doubleValue(), 0.0);
+        }
+    }
+    
+    @Test
+    public void testExactSumLargeIntegers() throws Exception {
+        // Integers near 2^53 overflow the fast long sum after a few hundred values
+        BigDecimal scale = new BigDecimal(Math.scalb(1.0, 64));
+        Random random = new Random(9);
+        ExactSum sum = new ExactSum();
+        ExactSum half = new ExactSum();
+        BigDecimal expected = BigDecimal.ZERO;
+        for (int i = 0; i < 5000; i++) {
+            double value = random.nextInt(10) == 0
+                ? Math.scalb(random.nextDouble() - 0.5, 60)
+                : (double) ((random.nextLong() >> 10) + (i % 3 == 0 ? 0 : 1L << 52));
+            sum.add(value);
+            if (i % 2 == 0) {
+                half.add(value);
+            }
+            expected = expected.add(new BigDecimal(value).multiply(scale).setScale(0, RoundingMode.DOWN));
+        }
+        Assert.assertEquals(expected.divide(scale).doubleValue(), sum.doubleValue(), 0.0);
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            half.write(out);
+        }
+        ExactSum copy = ExactSum.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        ExactSum copySum = new ExactSum(copy);
+        copySum.add(half);
+        Assert.assertEquals(2 * half.doubleValue(), copySum.doubleValue(), 0.0);
+    }
+    
+    @Test
+    public void testSumBeyondFixedPoint() throws Exception {
+        // Above 2^127 bytes, so the sum goes on in floating point
+        List<Row> rows = rows(1);
+        Row row = new Row();
+        row.add("size", "200000000000000000000000PB");
+        row.add("time", "1ms");
+        rows.add(row);
+        double expected = 2e23 * 0x1p40;
+        List<Row> result = directive("sum,max").execute(rows, CONTEXT);
+        Assert.assertEquals(expected, (double) result.get(0).getValue("total_size_sum"), expected * 1e-15);
+        Assert.assertEquals(expected, (double) result.get(0).getValue("total_size_max"), expected * 1e-15);
+        
+        ExactSum sum = new ExactSum();
+        sum.add(0.5);
+        sum.add(0x1p130);
+        sum.add(Double.NEGATIVE_INFINITY);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            sum.write(out);
+        }
+        ExactSum copy = ExactSum.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, copy.doubleValue(), 0.0);
+    }
+    
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        Path file = temp.getRoot().toPath().resolve("aggregate.ckpt");
+        List<Row> input = rows(100);
+        
+        // Simulate a job that dies after consuming the first 60 rows
+        AggregateStats first = directive("total");
+        try (AggregateCheckpointer checkpointer = new AggregateCheckpointer(file, 25)) {
+            first.withCheckpointer(checkpointer).accumulate(input.subList(0, 60), new AggregateState());
+        }
+        
+        Optional<AggregateState> checkpoint = AggregateCheckpointer.load(file);
+        Assert.assertTrue(checkpoint.isPresent());
+        Assert.assertEquals(50, checkpoint.get().getOffset());
+        
+        List<Row> resumed = directive("total").execute(rows(100), CONTEXT, checkpoint.get());
+        List<Row> expected = directive("total").execute(rows(100), CONTEXT);
+        Assert.assertEquals((double) expected.get(0).getValue("total_size"),
+                            (double) resumed.get(0).getValue("total_size"), 0.0001);
+        Assert.assertEquals((double) expected.get(0).getValue("total_time"),
+                            (double) resumed.get(0).getValue("total_time"), 0.0001);
+    }
+    
+    @Test
+    public void testLoadMissingCheckpoint() throws Exception {
+        Path file = temp.getRoot().toPath().resolve("missing.ckpt");
+        Assert.assertFalse(AggregateCheckpointer.load(file).isPresent());
+    }
+    
+    @Test
+    public void testConcurrentAccumulate() throws Exception {
+        AggregateStats directive = directive("total");
+        ConcurrentAggregateState state = new ConcurrentAggregateState();
+        Thread[] producers = new Thread[8];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50; i++) {
+                        directive.accumulate(rows(20), state);
+                    }
+                } catch (DirectiveExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        
+        AggregateState snapshot = state.snapshot();
+        Assert.assertEquals(8 * 50 * 20, snapshot.getCount());
+        Assert.assertEquals(8 * 50 * 20, snapshot.getOffset());
+        Assert.assertEquals(8 * 50 * 210 * 1024.0, snapshot.getTotalBytes(), 0.0);
+        
+        Row row = directive.finish(rows(1), snapshot).get(0);
+        Assert.assertEquals(8 * 50 * 210.0, (double) row.getValue("total_size"), 0.0001);
+    }
+    
+    @Test
+    public void testSnapshotWhileProducing() throws Exception {
+        ConcurrentAggregateState state = new ConcurrentAggregateState();
+        Thread[] producers = new Thread[6];
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(() -> {
+                for (int i = 1; i <= 20000; i++) {
+                    state.add(i, 2 * i);
+                    if (i % 1000 == 0) {
+                        state.advance();
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        // Snapshots taken while producers keep updating their cells never go back
+        long previous = 0;
+        for (int i = 0; i < 100; i++) {
+            AggregateState snapshot = state.snapshot();
+            Assert.assertTrue(snapshot.getCount() >= previous);
+            Assert.assertTrue(snapshot.getOffset() >= snapshot.getCount());
+            previous = snapshot.getCount();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        AggregateState snapshot = state.snapshot();
+        Assert.assertEquals(6 * 20000, snapshot.getCount());
+        Assert.assertEquals(6 * 20020, snapshot.getOffset());
+        Assert.assertEquals(6 * 20000 * 20001.0 / 2, snapshot.getTotalBytes(), 0.0);
+        Assert.assertEquals(6 * 20000 * 20001.0, snapshot.getTotalNanos(), 0.0);
+        Assert.assertEquals(20000.0, snapshot.getMaxBytes(), 0.0);
+    }
+    
+    @Test
+    public void testParallelPlan() throws Exception {
+        List<ExecutionPlan> plans = new ArrayList<>();
+        AggregateStats parallel = directive("total").withPlanner(
+            BatchPlanner.builder("aggregate-stats").column("size").column("time").batchSize(1024, 1024)
+                .parallelism(4).minChunkTime(1, TimeUnit.NANOSECONDS).resampleInterval(1)
+                .listener(plans::add).build());
+        AggregateStats sequential = directive("total");
+        List<Row> rows = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1024; i++) {
+            Row row = new Row();
+            row.add("size", random.nextInt(1 << 20) / 64.0 + "KB");
+            row.add("time", random.nextInt(1 << 20) / 16.0 + "ms");
+            rows.add(row);
+        }
+        AggregateState split = new AggregateState();
+        AggregateState whole = new AggregateState();
+        for (int i = 0; i < 3; i++) {
+            parallel.accumulate(rows, split);
+            sequential.accumulate(rows, whole);
+        }
+        Assert.assertEquals(4, parallel.getPlan().getParallelism());
+        Assert.assertEquals("parallel(4)", plans.get(plans.size() - 1).getStrategy());
+        Assert.assertEquals(whole.getTotalBytes(), split.getTotalBytes(), 0.0);
+        Assert.assertEquals(whole.getTotalNanos(), split.getTotalNanos(), 0.0);
+        Assert.assertEquals(whole.getCount(), split.getCount());
+        Assert.assertEquals(whole.getOffset(), split.getOffset());
+        
+        // A malformed value in a later chunk fails the batch as it would sequentially
+        Row malformed = new Row();
+        malformed.add("size", "12 parsecs");
+        malformed.add("time", "1ms");
+        rows.set(900, malformed);
+        try {
+            parallel.accumulate(rows, split);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Error parsing value"));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.cdap.wrangler.units;
+
+import io.cdap.wrangler.api.DirectiveExecutionException;
+import io.cdap.wrangler.api.DirectiveParseException;
+import io.cdap.wrangler.api.ExecutorContext;
+import io.cdap.wrangler.api.Optional;
+import io.cdap.wrangler.api.Row;
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import io.cdap.wrangler.steps.transformation.FormatDuration;
+import io.cdap.wrangler.steps.transformation.FormatSize;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for UnitFormatter and the format directives.
+ */
+public class UnitFormatterTest {
+    
+    private static final ExecutorContext CONTEXT = () -> ExecutorContext.Environment.TRANSFORM;
+    
+    @Test
+    public void testFormatSize() {
+        UnitFormatter formatter = new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 2);
+        Assert.assertEquals("0B", formatter.format(0));
+        Assert.assertEquals("1023B", formatter.format(1023));
+        Assert.assertEquals("1KB", formatter.format(1024));
+        Assert.assertEquals("1.5GB", formatter.format(1.5 * 1024 * 1024 * 1024));
+        Assert.assertEquals("1.05KB", formatter.format(1075));
+        Assert.assertEquals("1MB", formatter.format(1024 * 1024 - 1));
+        Assert.assertEquals("2048PB", formatter.format(2048 * Math.pow(1024, 5)));
+        Assert.assertEquals("-3.5MB", formatter.format(-3.5 * 1024 * 1024));
+        Assert.assertEquals("1.5GB", formatter.format(1.5 * 1024 * 1024 * 1024));
+        Assert.assertEquals(1, formatter.getCacheHits());
+        Assert.assertEquals("2KB", new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 0).format(1536));
+    }
+    
+    @Test
+    public void testFormatDuration() {
+        UnitFormatter formatter = new UnitFormatter(UnitParser.Kind.TIME_DURATION, 3, 0);
+        Assert.assertEquals("230ms", formatter.format(230e6));
+        Assert.assertEquals("999ns", formatter.format(999));
+        Assert.assertEquals("1.5us", formatter.format(1500));
+        Assert.assertEquals("1.5m", formatter.format(90e9));
+        Assert.assertEquals("1.001s", formatter.format(1.0006e9));
+        Assert.assertEquals("2d", formatter.format(48 * 3600e9));
+        StringBuilder out = new StringBuilder("latency=");
+        formatter.formatTo(12.5e6, out);
+        Assert.assertEquals("latency=12.5ms", out.toString());
+    }
+    
+    @Test
+    public void testRoundTrip() {
+        UnitFormatter sizes = new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 9);
+        UnitFormatter durations = new UnitFormatter(UnitParser.Kind.TIME_DURATION, 9);
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            double value = Math.floor(Math.pow(10, random.nextDouble() * 15));
+            double bytes = UnitParser.parse(sizes.format(value), UnitParser.Kind.BYTE_SIZE);
+            double nanos = UnitParser.parse(durations.format(value), UnitParser.Kind.TIME_DURATION);
+            Assert.assertEquals(value, bytes, value * 1e-9);
+            Assert.assertEquals(value, nanos, value * 1e-9);
+        }
+    }
+    
+    @Test
+    public void testRoundTripBeyondExactDigits() throws SyntaxError {
+        Random random = new Random(7);
+        for (int precision : new int[] {0, 3, 9}) {
+            UnitFormatter sizes = new UnitFormatter(UnitParser.Kind.BYTE_SIZE, precision);
+            UnitFormatter durations = new UnitFormatter(UnitParser.Kind.TIME_DURATION, precision);
+            for (int i = 0; i < 1000; i++) {
+                // Rounded values of 2^53 and more in the largest unit
+                double value = Math.scalb(1 + random.nextDouble(), 53 + 50 + random.nextInt(30));
+                String size = sizes.format(value);
+                String duration = durations.format(value);
+                Assert.assertEquals(size, value, (double) new ByteSize(size).value(), value * 1e-15);
+                Assert.assertEquals(size, value, UnitParser.parse(size, UnitParser.Kind.BYTE_SIZE), value * 1e-15);
+                Assert.assertEquals(duration, value, (double) new TimeDuration(duration).value(), value * 1e-15);
+                Assert.assertEquals(duration, value, UnitParser.parse(duration, UnitParser.Kind.TIME_DURATION),
+                                    value * 1e-15);
+            }
+        }
+        Assert.assertEquals("9007199254740992PB", new UnitFormatter(UnitParser.Kind.BYTE_SIZE, 2)
+            .format(Math.scalb(1.0, 103)));
+    }
+    
+    @Test
+    public void testDirectives() throws Exception {
+        Row first = new Row();
+        first.setDouble("bytes", 1.5 * 1024 * 1024 * 1024);
+        first.add("nanos", "230000000");
+        Row second = new Row();
+        second.add("bytes", 512L);
+        List<Row> rows = new FormatDuration("nanos", "latency", Optional.of(null))
+            .execute(new FormatSize("bytes", "size", Optional.of(1)).execute(Arrays.asList(first, second), CONTEXT),
+                     CONTEXT);
+        Assert.assertEquals("1.5GB", first.getValue("size"));
+        Assert.assertEquals("230ms", first.getValue("latency"));
+        Assert.assertEquals("512B", rows.get(1).getValue("size"));
+        Assert.assertEquals(-1, rows.get(1).find("latency"));
+        
+        Row bad = new Row();
+        bad.add("bytes", "lots");
+        try {
+            new FormatSize("bytes", "size", Optional.of(null)).execute(Arrays.asList(bad), CONTEXT);
+            Assert.fail();
+        } catch (DirectiveExecutionException e) {
+            Assert.assertTrue(e.getMessage().contains("lots"));
+        }
+        try {
+            new FormatSize("bytes", "size", Optional.of(12));
+            Assert.fail();
+        } catch (DirectiveParseException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package io.cdap.wrangler.units;
+
+import io.cdap.wrangler.api.parser.ByteSize;
+import io.cdap.wrangler.api.parser.SyntaxError;
+import io.cdap.wrangler.api.parser.TimeDuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Tests for UnitParser and UnitPredicate.
+ */
+public class UnitParserTest {
+    
+    private static final String[] SIZES = {
+        "0B", "1024B", "1KB", "1.5MB", "2 GB", " 10mb ", "0.001TB", "3PB", ".5KB", "5.KB", "123456789012345678901B"
+    };
+    
+    private static final String[] DURATIONS = {
+        "100ns", "1us", "1µs", "250ms", "1.5s", "2 m", "24h", "7d", "0.3MS", " 12.75s "
+    };
+    
+    @Test
+    public void testMatchesByteSize() throws SyntaxError {
+        for (String size : SIZES) {
+            double expected = (double) new ByteSize(size).value();
+            Assert.assertEquals(size, expected, UnitParser.parse(size, UnitParser.Kind.BYTE_SIZE), 0.0);
+            byte[] bytes = size.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(size, expected,
+                                UnitParser.parse(bytes, 0, bytes.length, UnitParser.Kind.BYTE_SIZE), 0.0);
+        }
+    }
+    
+    @Test
+    public void testMatchesTimeDuration() throws SyntaxError {
+        for (String duration : DURATIONS) {
+            double expected = (double) new TimeDuration(duration).value();
+            Assert.assertEquals(duration, expected, UnitParser.parse(duration, UnitParser.Kind.TIME_DURATION), 0.0);
+            byte[] bytes = duration.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(duration, expected,
+                                UnitParser.parse(bytes, 0, bytes.length, UnitParser.Kind.TIME_DURATION), 0.0);
+        }
+    }
+    
+    @Test
+    public void testLongMantissas() throws SyntaxError {
+        // Mantissas above 2^53 are not exact doubles and must not take the fast path
+        Assert.assertEquals((double) new ByteSize("12345678901234567.8B").value(),
+                            UnitParser.parse("12345678901234567.8B", UnitParser.Kind.BYTE_SIZE), 0.0);
+        Random random = new Random(11);
+        for (int i = 0; i < 10000; i++) {
+            StringBuilder size = new StringBuilder();
+            int digits = 14 + random.nextInt(5);
+            int point = 1 + random.nextInt(digits - 1);
+            for (int j = 0; j < digits; j++) {
+                size.append(j == point ? "." : "").append((char) ('0' + random.nextInt(10)));
+            }
+            String value = size.append("KB").toString();
+            Assert.assertEquals(value, (double) new ByteSize(value).value(),
+                                UnitParser.parse(value, UnitParser.Kind.BYTE_SIZE), 0.0);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            Assert.assertEquals(value, (double) new ByteSize(value).value(),
+                                UnitParser.parse(bytes, 0, bytes.length, UnitParser.Kind.BYTE_SIZE), 0.0);
+        }
+    }
+    
+    @Test
+    public void testMalformed() {
+        String[] malformed = {"", "MB10", "10", "10ZB", "1.2.3MB", "10 M B", ".MB", "10ms"};
+        for (String value : malformed) {
+            Assert.assertTrue(value, Double.isNaN(UnitParser.parse(value, UnitParser.Kind.BYTE_SIZE)));
+        }
+        Assert.assertTrue(Double.isNaN(UnitParser.parse("10KB", UnitParser.Kind.TIME_DURATION)));
+    }
+    
+    @Test
+    public void testPredicate() throws Exception {
+        UnitPredicate predicate = UnitPredicate.of(">", new ByteSize("5MB"));
+        Assert.assertTrue(predicate.test(UnitParser.parse("6MB", UnitParser.Kind.BYTE_SIZE)));
+        Assert.assertFalse(predicate.test(UnitParser.parse("5120KB", UnitParser.Kind.BYTE_SIZE)));
+        
+        byte[] cell = "garbage".getBytes(StandardCharsets.UTF_8);
+        Assert.assertTrue(predicate.mayMatch(cell, 0, cell.length));
+    }
+}